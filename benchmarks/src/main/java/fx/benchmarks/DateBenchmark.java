@@ -0,0 +1,79 @@
+package fx.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import util.DateUtil;
+
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and formatting birthdays: the hand-written dd.MM.yyyy code against {@code DateTimeFormatter}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DateBenchmark {
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private LocalDate[] dates;
+    private String[] texts;
+    private final char[] buffer = new char[DateUtil.DATE_LENGTH];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        long first = LocalDate.of(1950, 1, 1).toEpochDay();
+        dates = new LocalDate[size];
+        texts = new String[size];
+        for (int i = 0; i < size; i++) {
+            dates[i] = LocalDate.ofEpochDay(first + random.nextInt(25000));
+            texts[i] = DateUtil.format(dates[i]);
+        }
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) {
+        for (String text : texts) {
+            blackhole.consume(DateUtil.parse(text));
+        }
+    }
+
+    @Benchmark
+    public void parseWithFormatter(Blackhole blackhole) {
+        for (String text : texts) {
+            blackhole.consume(LocalDate.parse(text, DateUtil.DATE_FORMATTER));
+        }
+    }
+
+    @Benchmark
+    public void format(Blackhole blackhole) {
+        for (LocalDate date : dates) {
+            blackhole.consume(DateUtil.format(date));
+        }
+    }
+
+    /**
+     * Formatting into a reused buffer, as the XML writer does.
+     */
+    @Benchmark
+    public void formatTo(Blackhole blackhole) {
+        for (LocalDate date : dates) {
+            DateUtil.formatTo(date, buffer, 0);
+            blackhole.consume(buffer);
+        }
+    }
+
+    @Benchmark
+    public void formatWithFormatter(Blackhole blackhole) {
+        for (LocalDate date : dates) {
+            blackhole.consume(DateUtil.DATE_FORMATTER.format(date));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package fx.benchmarks;
+
+import fx.model.IdAllocator;
+import fx.model.Person;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Random data generation and the cost of creating persons.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GenerationBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private static final LocalDate BIRTHDAY = LocalDate.of(1985, 3, 4);
+
+    @Benchmark
+    public List<Person> generateRandomPersons() {
+        return Person.generateRandomPersons(size, 42);
+    }
+
+    /**
+     * Persons with known values, as created by the loaders.
+     */
+    @Benchmark
+    public void constructWithValues(Blackhole blackhole) {
+        int firstId = IdAllocator.reserve(size);
+        for (int i = 0; i < size; i++) {
+            blackhole.consume(new Person(firstId + i, "Hans", "Muster", "Street", 123456, "City", BIRTHDAY));
+        }
+    }
+
+    /**
+     * Persons created like the "New..." button does, with an id from the allocator and a random birthday.
+     */
+    @Benchmark
+    public void constructWithNames(Blackhole blackhole) {
+        for (int i = 0; i < size; i++) {
+            blackhole.consume(new Person("Hans", "Muster"));
+        }
+    }
+
+    /**
+     * Creating all JavaFX properties of a person, which the table does for its visible rows.
+     */
+    @Benchmark
+    public void constructWithProperties(Blackhole blackhole) {
+        int firstId = IdAllocator.reserve(size);
+        for (int i = 0; i < size; i++) {
+            Person person = new Person(firstId + i, "Hans", "Muster", "Street", 123456, "City", BIRTHDAY);
+            blackhole.consume(person.idProperty());
+            blackhole.consume(person.firstNameProperty());
+            blackhole.consume(person.lastNameProperty());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package fx.benchmarks;
+
+import fx.model.BirthdayHistogram;
+import fx.model.Person;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The birthday statistics: counting a whole list, as on load, and the update for a single edit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HistogramBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private List<Person> persons;
+    private BirthdayHistogram filledHistogram;
+    private final LocalDate[] birthdays = {LocalDate.of(1985, 3, 4), LocalDate.of(1990, 11, 30)};
+    private int edit;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        persons = Person.generateRandomPersons(size, 42);
+        filledHistogram = new BirthdayHistogram();
+        filledHistogram.personsAdded(persons);
+    }
+
+    @Benchmark
+    public BirthdayHistogram countAll() {
+        BirthdayHistogram histogram = new BirthdayHistogram();
+        histogram.personsAdded(persons);
+        return histogram;
+    }
+
+    /**
+     * One birthday edit; should not depend on the size of the list.
+     */
+    @Benchmark
+    public int updateOne() {
+        Person person = persons.get(edit++ % persons.size());
+        LocalDate oldBirthday = birthdays[edit & 1];
+        LocalDate newBirthday = birthdays[(edit + 1) & 1];
+        filledHistogram.personChanged(person, Person.BIRTHDAY_PROPERTY, oldBirthday, newBirthday);
+        return filledHistogram.getMonthCount(newBirthday.getMonthValue() - 1);
+    }
+}
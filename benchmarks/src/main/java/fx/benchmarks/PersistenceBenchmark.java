@@ -0,0 +1,107 @@
+package fx.benchmarks;
+
+import fx.model.Person;
+import fx.persistence.JaxbPersonStore;
+import fx.persistence.PersonBinaryFile;
+import fx.persistence.PersonBinaryWriter;
+import fx.persistence.PersonXmlReader;
+import fx.persistence.PersonXmlWriter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load and save of the address book: the JAXB reference path through {@code PersonListWrapper},
+ * the streaming XML reader and writer used by the app and the binary snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceBenchmark {
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private List<Person> persons;
+    private File directory;
+    private File xmlFile;
+    private File binaryFile;
+    private File outputFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        persons = Person.generateRandomPersons(size, 42);
+        directory = Files.createTempDirectory("persons-benchmark").toFile();
+        xmlFile = new File(directory, "persons.xml");
+        binaryFile = new File(directory, "persons.pbin");
+        outputFile = new File(directory, "output");
+        PersonXmlWriter.write(persons, xmlFile);
+        try (PersonBinaryWriter writer = new PersonBinaryWriter(binaryFile)) {
+            for (Person person : persons) {
+                writer.write(person);
+            }
+            writer.commit();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public List<Person> jaxbLoad() throws Exception {
+        return JaxbPersonStore.load(xmlFile);
+    }
+
+    @Benchmark
+    public void jaxbSave() throws Exception {
+        JaxbPersonStore.save(persons, outputFile);
+    }
+
+    @Benchmark
+    public int staxLoad(Blackhole blackhole) throws Exception {
+        try (InputStream inputStream = new BufferedInputStream(new FileInputStream(xmlFile))) {
+            return new PersonXmlReader().read(inputStream, blackhole::consume);
+        }
+    }
+
+    @Benchmark
+    public int staxSave() throws Exception {
+        return PersonXmlWriter.write(persons, outputFile);
+    }
+
+    @Benchmark
+    public int binaryLoad(Blackhole blackhole) throws Exception {
+        try (PersonBinaryFile file = PersonBinaryFile.open(binaryFile)) {
+            return file.read(PersonXmlReader.DEFAULT_BATCH_SIZE, blackhole::consume);
+        }
+    }
+
+    @Benchmark
+    public int binarySave() throws Exception {
+        try (PersonBinaryWriter writer = new PersonBinaryWriter(outputFile)) {
+            for (Person person : persons) {
+                writer.write(person);
+            }
+            writer.commit();
+            return writer.getCount();
+        }
+    }
+}
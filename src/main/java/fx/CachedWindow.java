@@ -0,0 +1,89 @@
+package fx;
+
+import fx.diagnostics.Histogram;
+import fx.diagnostics.Metrics;
+import fx.diagnostics.FlightEvents;
+import javafx.animation.AnimationTimer;
+import javafx.stage.Stage;
+import javafx.stage.WindowEvent;
+
+/**
+ * A dialog whose scene and controller are built once and kept, so opening it again only rebinds the
+ * controller and shows the stage.
+ * <p>
+ * Every opening is measured from the request: until the window is shown as {@code dialog.open.<name>},
+ * and until the first pulse after that, the one that paints it, as {@code dialog.paint.<name>}. The
+ * flight recorder event of the opening is committed at the first pulse as well.
+ *
+ * @param <C> the type of the controller
+ */
+final class CachedWindow<C> {
+
+    private final Stage stage;
+    private final C controller;
+    private final Histogram openTimer;
+    private final Histogram paintTimer;
+
+    /* Текущее открытие, до первого кадра после показа окна */
+    private long openingStart;
+    private FlightEvents.Span openingEvent;
+
+    private final AnimationTimer firstPulse = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            stop();
+            paintTimer.recordSince(openingStart);
+            openingEvent.commit();
+        }
+    };
+
+    CachedWindow(String name, Stage stage, C controller) {
+        this.stage = stage;
+        this.controller = controller;
+        this.openTimer = Metrics.timer("dialog.open." + name);
+        this.paintTimer = Metrics.timer("dialog.paint." + name);
+        stage.addEventHandler(WindowEvent.WINDOW_SHOWN, event -> {
+            openTimer.recordSince(openingStart);
+            firstPulse.start();
+        });
+    }
+
+    Stage getStage() {
+        return stage;
+    }
+
+    C getController() {
+        return controller;
+    }
+
+    /**
+     * Shows the window and returns, or brings it to the front if it is showing already.
+     *
+     * @param startNanos value of {@link System#nanoTime()} when the user asked for the window
+     * @param event      flight recorder event begun then
+     */
+    void show(long startNanos, FlightEvents.Span event) {
+        if (stage.isShowing()) {
+            stage.toFront();
+            return;
+        }
+        beginOpening(startNanos, event);
+        stage.show();
+    }
+
+    /**
+     * Shows the window and waits until it is closed.
+     *
+     * @param startNanos value of {@link System#nanoTime()} when the user asked for the window
+     * @param event      flight recorder event begun then
+     */
+    void showAndWait(long startNanos, FlightEvents.Span event) {
+        beginOpening(startNanos, event);
+        stage.showAndWait();
+    }
+
+    private void beginOpening(long startNanos, FlightEvents.Span event) {
+        openingStart = startNanos;
+        openingEvent = event;
+    }
+}
@@ -1,51 +1,147 @@
 package fx;
 
+import fx.diagnostics.FlightEvents;
+import fx.diagnostics.FlightRecording;
+import fx.diagnostics.Metrics;
+import fx.model.BirthdayHistogram;
 import fx.model.Constants;
+import fx.model.DuplicateFinder;
 import fx.model.Person;
-import fx.model.PersonListWrapper;
+import fx.model.PersonAggregator;
+import fx.model.PersonChangeTracker;
+import fx.model.PersonIdIndex;
+import fx.model.PersonList;
+import fx.model.PersonListVersion;
+import fx.model.PersonNameIndex;
+import fx.model.PersonStatistics;
+import fx.model.StatisticsCache;
+import fx.model.VirtualPersonList;
+import fx.persistence.AppendJournalTask;
+import fx.persistence.CompactJournalTask;
+import fx.persistence.LoadPersonsTask;
+import fx.persistence.PersonBinaryFile;
+import fx.persistence.PersonChangeLog;
+import fx.persistence.PersonJournal;
+import fx.persistence.SavePersonsTask;
 import fx.view.BirthdayStatisticsController;
+import fx.view.DiagnosticsController;
 import fx.view.PersonEditDialogController;
 import fx.view.PersonOverviewController;
 import fx.view.RootLayoutController;
+import javafx.animation.AnimationTimer;
+import javafx.animation.PauseTransition;
 import javafx.application.Application;
-import javafx.collections.FXCollections;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+import javafx.concurrent.Worker;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
+import javafx.scene.control.ButtonBar;
+import javafx.scene.control.ButtonType;
 import javafx.scene.image.Image;
 import javafx.scene.layout.AnchorPane;
 import javafx.scene.layout.BorderPane;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.Marshaller;
-import javax.xml.bind.Unmarshaller;
 import java.io.File;
-import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.prefs.Preferences;
 
 public class Main extends Application {
 
     private Stage primaryStage;
     private BorderPane rootLayout;
-    private ObservableList<Person> personData = FXCollections.observableArrayList();
-    private static Properties properties = new Properties();
+    private final PersonList personData = new PersonList();
+    private final PersonChangeTracker personTracker = new PersonChangeTracker(personData);
+    private final BirthdayHistogram birthdayHistogram = new BirthdayHistogram();
+    private final PersonNameIndex personNameIndex = new PersonNameIndex();
+    private final PersonIdIndex personIdIndex = new PersonIdIndex();
+    private final PersonListVersion personDataVersion = new PersonListVersion();
+    private final StatisticsCache statisticsCache = new StatisticsCache();
+    /* Версия personData, статистика которой сейчас считается, или -1 */
+    private long statisticsVersionInProgress = -1;
+    private final PersonChangeLog changeLog = new PersonChangeLog();
+    /* Читается в фоне при запуске, до этого пустой */
+    private Properties properties = new Properties();
+    /* Момент загрузки класса, от него считается время до первого кадра */
+    private static final long LAUNCH_NANOS = System.nanoTime();
+    private static final String CONFIG_RESOURCE = "/config.properties";
+    private CompletableFuture<StartupData> startupData;
+
+    /* Загрузка и сохранение выполняются по очереди в отдельном потоке */
+    private final ExecutorService persistenceExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "persistence");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private LoadPersonsTask loadTask;
+    /*
+     * Сколько фоновых задач сейчас читают людей из personData (см. pinPersons). Пока они есть, люди из
+     * списка не изменяются: правка заменяет человека изменённой копией.
+     */
+    private int pinningTasks;
+    /* Пока файл загружается, таблица содержит только его часть, и сохранять её нельзя */
+    private final ReadOnlyBooleanWrapper loading = new ReadOnlyBooleanWrapper(this, "loading");
+    /*
+     * Файл, содержимое которого (вместе с журналом) совпадает с personData без учёта изменений из changeLog.
+     * Только в его журнал можно дописывать изменения, иначе сохраняется полный снимок.
+     */
+    private File syncedFile;
+    /* Номер последнего начатого сохранения полного снимка; меняется и когда таблицу заполняют другие данные */
+    private int snapshotGeneration;
+    private boolean autosaveEnabled;
+
+    /* Снимок, открытый для просмотра (см. browsePersonFile); пока он открыт, personData пуст */
+    private File browsedFile;
+    private PersonBinaryFile browsedSnapshot;
+    private VirtualPersonList browsedData;
+
+    /* Сколько групп дубликатов перечислять в диалоге */
+    private static final int MAX_DUPLICATE_GROUPS_SHOWN = 15;
+    /* Сколько ждать завершения сохранения при выходе */
+    private static final long EXIT_TIMEOUT_SECONDS = 30;
+    private RootLayoutController rootLayoutController;
+    private PersonOverviewController personOverviewController;
+    /* Окна строятся при первом открытии и потом переиспользуются */
+    private CachedWindow<PersonEditDialogController> personEditDialog;
+    private CachedWindow<BirthdayStatisticsController> birthdayStatsDialog;
+    private CachedWindow<DiagnosticsController> diagnosticsWindow;
+    private final Map<String, Image> icons = new HashMap<>();
 
     /* Пути к страницам */
     private static final String ROOT_LAYOUT_PATH = "/RootLayout.fxml";
     private static final String PERSON_SCENE_PATH = "/PersonOverview.fxml";
     private static final String PERSON_EDIT_SCENE_PATH = "/PersonEditDialog.fxml";
     private static final String BIRTHDAY_STATS_SCENE_PATH = "/BirthdayStatistics.fxml";
+    private static final String DIAGNOSTICS_SCENE_PATH = "/Diagnostics.fxml";
 
-    /* Url иконок stage */
-    private static final String RESOURCES_PATH = "src/main/resources/";
-    private static final String PRIMARY_STAGE_ICON_URL = "file:" + RESOURCES_PATH + "images/baseline_menu_book_black_18dp.png";
-    private static final String EDIT_DIALOG_ICON_URL = "file:" + RESOURCES_PATH + "images/baseline_person_add_black_18dp.png";
-    private static final String BIRTHDAY_STATS_ICON_URL = "file:" + RESOURCES_PATH + "images/baseline_calendar_today_black_18dp.png";
+    /* Иконки stage в classpath */
+    private static final String PRIMARY_STAGE_ICON = "/images/baseline_menu_book_black_18dp.png";
+    private static final String EDIT_DIALOG_ICON = "/images/baseline_person_add_black_18dp.png";
+    private static final String BIRTHDAY_STATS_ICON = "/images/baseline_calendar_today_black_18dp.png";
 
     public Stage getPrimaryStage() {
         return primaryStage;
@@ -59,56 +155,246 @@ public class Main extends Application {
         return personData;
     }
 
+    /**
+     * Appends the persons with one change of the list.
+     */
+    public void addPersons(Collection<? extends Person> persons) {
+        personData.addAll(persons);
+    }
+
+    /**
+     * Removes the persons with one pass over the list and one change of it. Persons are matched by
+     * identity, not by id; those that are not in the list are found with the id index and skipped, so
+     * removing only such persons does not touch the list.
+     *
+     * @return the number of persons removed
+     */
+    public int removePersons(Collection<? extends Person> persons) {
+        Set<Person> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Person person : persons) {
+            if (personIdIndex.get(person.getId()) == person) {
+                removed.add(person);
+            }
+        }
+        if (removed.isEmpty()) {
+            return 0;
+        }
+        int sizeBefore = personData.size();
+        personData.removeAll(removed);
+        return sizeBefore - personData.size();
+    }
+
+    /**
+     * Puts every person that is a key of the map in place of the value, with one change of the list.
+     * Keys are matched by identity; persons that are not in the list are ignored.
+     *
+     * @return the number of persons replaced
+     */
+    public int replacePersons(Map<Person, ? extends Person> replacements) {
+        Map<Person, Person> byIdentity = new IdentityHashMap<>(replacements);
+        int[] replaced = {0};
+        personData.replaceAll(person -> {
+            Person replacement = byIdentity.get(person);
+            if (replacement == null || replacement == person) {
+                return person;
+            }
+            replaced[0]++;
+            return replacement;
+        });
+        return replaced[0];
+    }
+
+    public PersonNameIndex getPersonNameIndex() {
+        return personNameIndex;
+    }
+
+    public Main() {
+        personTracker.addListener(birthdayHistogram);
+        personTracker.addListener(personNameIndex);
+        personTracker.addListener(personIdIndex);
+        personTracker.addListener(changeLog);
+        personTracker.addListener(personDataVersion);
+    }
+
     public static void main(String[] args) {
         try {
-            InputStream inputStream = new FileInputStream("src/main/resources/config.properties");
-            properties.load(inputStream);
-
-            launch(args);
+            launch(FlightRecording.startIfRequested(args));
         } catch (Exception e) {
             System.err.println(">>> start exception");
             e.printStackTrace();
         }
     }
 
+    /**
+     * What the application needs at startup besides its scenes.
+     */
+    private static final class StartupData {
+        private final Properties properties;
+        private final File lastFile;
+
+        StartupData(Properties properties, File lastFile) {
+            this.properties = properties;
+            this.lastFile = lastFile;
+        }
+    }
+
+    /**
+     * Starts reading the configuration and the last opened file on a background thread, so the FX thread
+     * meanwhile only loads the scenes.
+     */
+    @Override
+    public void init() {
+        startupData = CompletableFuture.supplyAsync(() -> new StartupData(readConfig(), getPersonFilePath()));
+    }
+
+    /**
+     * Reads the configuration from the classpath; without one every setting has its default.
+     */
+    private static Properties readConfig() {
+        Properties config = new Properties();
+        try (InputStream inputStream = Main.class.getResourceAsStream(CONFIG_RESOURCE)) {
+            if (inputStream != null) {
+                config.load(inputStream);
+            } else {
+                System.err.println("No " + CONFIG_RESOURCE + " found, using defaults");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return config;
+    }
+
+    /**
+     * Shows the window with an empty table as soon as the scenes are loaded; the data is streamed in once
+     * the configuration is read.
+     */
     @Override
     public void start(Stage primaryStage) {
         this.primaryStage = primaryStage;
         this.primaryStage.setTitle("Persons App");
-        /* Иконка приложения */
-        this.primaryStage.getIcons().add(new Image(PRIMARY_STAGE_ICON_URL));
+        /* Иконки декодируются в фоне, иконка приложения появится, когда будет готова */
+        for (String icon : new String[]{PRIMARY_STAGE_ICON, EDIT_DIALOG_ICON, BIRTHDAY_STATS_ICON}) {
+            icon(icon);
+        }
+        this.primaryStage.getIcons().add(icon(PRIMARY_STAGE_ICON));
 
         initRootLayout();
-        loadData();
+        changeLog.dirtyProperty().addListener((observable, wasDirty, isDirty) -> updateTitle());
         showPersonOverview();
 
         this.primaryStage.show();
+        reportFirstFrame();
+
+        startupData.whenComplete((data, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                error.printStackTrace();
+                showErrorDialog("Could not start", "Could not read the configuration:\n" + error.getCause());
+                return;
+            }
+            properties = data.properties;
+            initAutosave();
+            loadData(data.lastFile);
+        }));
+    }
+
+    /**
+     * Reports the time from the launch until the first pulse after the window is shown, the one that
+     * paints it, as {@code startup.firstFrame.time}.
+     */
+    private void reportFirstFrame() {
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                stop();
+                long elapsed = Metrics.timer("startup.firstFrame.time").recordSince(LAUNCH_NANOS);
+                System.out.println(String.format("First frame after %d ms", elapsed / 1_000_000));
+            }
+        }.start();
     }
 
     private void initRootLayout() {
+        FlightEvents.Span event = FlightEvents.ui("root", ROOT_LAYOUT_PATH);
         try {
-            FXMLLoader loader = new FXMLLoader();
-            loader.setLocation(Main.class.getResource(ROOT_LAYOUT_PATH));
-            rootLayout = loader.load();
+            FXMLLoader loader = loadFxml(ROOT_LAYOUT_PATH);
+            rootLayout = loader.getRoot();
 
             Scene scene = new Scene(rootLayout);
             primaryStage.setScene(scene);
 
-            RootLayoutController controller = loader.getController();
-            controller.setMainApp(this);
+            rootLayoutController = loader.getController();
+            rootLayoutController.setMainApp(this);
         } catch (Exception e) {
             e.printStackTrace();
         }
+        event.commit();
     }
 
-    private void loadData() {
+    /**
+     * Schedules an autosave for the first change after a save. Further changes until then are saved
+     * together with it, so a burst of edits costs one journal append. While there are unsaved changes the
+     * autosave is scheduled again, also when it had to skip them because the file is not synced yet.
+     */
+    private void initAutosave() {
+        long seconds = Long.parseLong(properties.getProperty(Constants.AUTOSAVE_INTERVAL_SECONDS, "0"));
+        autosaveEnabled = seconds > 0;
+        if (!autosaveEnabled) {
+            return;
+        }
+        PauseTransition autosaveTimer = new PauseTransition(Duration.seconds(seconds));
+        autosaveTimer.setOnFinished(event -> {
+            autosave();
+            // A skipped autosave leaves the log dirty, so no further change would start the timer again.
+            if (changeLog.isDirty()) {
+                autosaveTimer.playFromStart();
+            }
+        });
+        changeLog.dirtyProperty().addListener((observable, wasDirty, isDirty) -> {
+            if (isDirty) {
+                autosaveTimer.playFromStart();
+            }
+        });
+    }
+
+    /**
+     * Saves the changes to the journal of the open file in the background. Does nothing unless the
+     * file holds the data as of the last save: autosave never writes a whole file, which could take
+     * seconds and would overwrite the file with data that did not come from it.
+     */
+    private void autosave() {
+        File file = getPersonFilePath();
+        if (file != null && file.equals(syncedFile) && changeLog.isDirty()) {
+            saveChangesToJournal(file);
+        }
+    }
+
+    /**
+     * Saves the unsaved changes of the open file, if autosave is on, and waits for running saves.
+     */
+    @Override
+    public void stop() throws Exception {
+        cancelLoading();
+        if (autosaveEnabled) {
+            autosave();
+        }
+        persistenceExecutor.shutdown();
+        persistenceExecutor.awaitTermination(EXIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Fills the empty table at startup, unless the user has already opened a file.
+     *
+     * @param file the file opened last, read at startup
+     */
+    private void loadData(File file) {
+        if (!personData.isEmpty() || loadTask != null || isBrowsing()) {
+            return;
+        }
         if (Boolean.parseBoolean(properties.getProperty(Constants.DATA_IS_RANDOM))) {
             int number = Integer.parseInt(properties.getProperty(Constants.NUMBER_OF_RANDOM_DATA_RECORDS));
-            personData.clear();
-            personData.addAll(Person.generateRandomPersons(number));
+            String seed = properties.getProperty(Constants.RANDOM_DATA_SEED);
+            generatePersonData(number, seed != null ? Long.valueOf(seed) : null);
         } else {
             // Try to load last opened person file.
-            File file = getPersonFilePath();
             if (file != null) {
                 loadPersonDataFromFile(file);
             } else {
@@ -118,30 +404,65 @@ public class Main extends Application {
         }
     }
 
+    /**
+     * Generates random persons in the background and shows them when they are ready.
+     */
+    private void generatePersonData(int number, Long seed) {
+        Task<List<Person>> task = new Task<List<Person>>() {
+            @Override
+            protected List<Person> call() {
+                updateMessage("Generating " + number + " persons...");
+                List<Person> persons = seed != null ? Person.generateRandomPersons(number, seed) : Person.generateRandomPersons(number);
+                updateMessage("Generated " + number + " persons");
+                return persons;
+            }
+        };
+        task.setOnSucceeded(event -> {
+            if (loadTask != null || isBrowsing()) {
+                // The user opened a file meanwhile.
+                return;
+            }
+            showStartupData(() -> personData.setAll(task.getValue()));
+        });
+        task.setOnFailed(event -> task.getException().printStackTrace());
+        runInBackground(task);
+    }
+
     private void showPersonOverview() {
         try {
-            FXMLLoader loader = new FXMLLoader();
-            loader.setLocation(Main.class.getResource(PERSON_SCENE_PATH));
-            AnchorPane personOverview = loader.load();
+            FXMLLoader loader = loadFxml(PERSON_SCENE_PATH);
+            AnchorPane personOverview = loader.getRoot();
 
             rootLayout.setCenter(personOverview);
-            PersonOverviewController controller = loader.getController();
-            controller.setMainApp(this);
+            personOverviewController = loader.getController();
+            personOverviewController.setMainApp(this);
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
     private void initPersonsData() {
-        personData.add(new Person("Hans", "Muster"));
-        personData.add(new Person("Ruth", "Mueller"));
-        personData.add(new Person("Heinz", "Kurz"));
-        personData.add(new Person("Cornelia", "Meier"));
-        personData.add(new Person("Werner", "Meyer"));
-        personData.add(new Person("Lydia", "Kunz"));
-        personData.add(new Person("Anna", "Best"));
-        personData.add(new Person("Stefan", "Meier"));
-        personData.add(new Person("Martin", "Mueller"));
+        showStartupData(() -> personData.setAll(
+                new Person("Hans", "Muster"),
+                new Person("Ruth", "Mueller"),
+                new Person("Heinz", "Kurz"),
+                new Person("Cornelia", "Meier"),
+                new Person("Werner", "Meyer"),
+                new Person("Lydia", "Kunz"),
+                new Person("Anna", "Best"),
+                new Person("Stefan", "Meier"),
+                new Person("Martin", "Mueller")));
+    }
+
+    /**
+     * Shows persons that come from no file as the starting point: like a loaded file they are not unsaved
+     * changes, and since no file holds them the next save writes a whole file.
+     */
+    private void showStartupData(Runnable fill) {
+        syncedFile = null;
+        snapshotGeneration++;
+        changeLog.runUnrecorded(fill);
+        changeLog.clear();
     }
 
     /**
@@ -153,28 +474,24 @@ public class Main extends Application {
      * @return true if the user clicked OK, false otherwise.
      */
     public boolean showPersonEditDialog(Person person) {
+        long start = System.nanoTime();
+        FlightEvents.Span event = FlightEvents.ui("edit", PERSON_EDIT_SCENE_PATH);
         try {
-            // Load the fxml file and create a new stage for the popup dialog.
-            FXMLLoader loader = new FXMLLoader();
-            loader.setLocation(Main.class.getResource(PERSON_EDIT_SCENE_PATH));
-            AnchorPane editDialog = loader.load();
-
-            // Create the dialog Stage.
-            Stage personEditDialogStage = new Stage();
-            personEditDialogStage.setTitle("Edit Person");
-            personEditDialogStage.getIcons().add(new Image(EDIT_DIALOG_ICON_URL));
-            personEditDialogStage.initModality(Modality.WINDOW_MODAL);
-            personEditDialogStage.initOwner(primaryStage);
-            Scene scene = new Scene(editDialog);
-            personEditDialogStage.setScene(scene);
+            if (personEditDialog == null) {
+                // Load the fxml file and create a new stage for the popup dialog.
+                FXMLLoader loader = loadFxml(PERSON_EDIT_SCENE_PATH);
+                Stage personEditDialogStage = createDialogStage(loader, "Edit Person", EDIT_DIALOG_ICON, Modality.WINDOW_MODAL);
+                PersonEditDialogController controller = loader.getController();
+                controller.setDialogStage(personEditDialogStage);
+                personEditDialog = new CachedWindow<>("edit", personEditDialogStage, controller);
+            }
 
             // Set the person into the controller.
-            PersonEditDialogController controller = loader.getController();
-            controller.setDialogStage(personEditDialogStage);
+            PersonEditDialogController controller = personEditDialog.getController();
             controller.setPerson(person);
 
             // Show the dialog and wait until the user closes it
-            personEditDialogStage.showAndWait();
+            personEditDialog.showAndWait(start, event);
 
             return controller.isOkClicked();
         } catch (Exception e) {
@@ -183,6 +500,52 @@ public class Main extends Application {
         }
     }
 
+    /**
+     * Opens the edit dialog for a person of the table. While a background task reads the persons (see
+     * {@link #pinPersons}), the dialog edits a copy that replaces the person in the list on OK, so the task
+     * sees the values it started with. The dialog is modal, no such task can start while it is open.
+     *
+     * @return the edited person, which is in the list now, or null if the user cancelled
+     */
+    public Person editPerson(Person person) {
+        boolean copyOnWrite = pinningTasks > 0 && !isBrowsing();
+        Person edited = copyOnWrite ? person.copy() : person;
+        if (!showPersonEditDialog(edited)) {
+            return null;
+        }
+        if (copyOnWrite) {
+            // Persons are compared by identity.
+            int index = personData.indexOf(person);
+            if (index < 0) {
+                return null;
+            }
+            personData.set(index, edited);
+        }
+        return edited;
+    }
+
+    /**
+     * Returns the persons of the table for a task that reads them in the background, and keeps every one of
+     * them unchanged until {@link #unpinWhenDone} is told the task: edits meanwhile replace a person by an
+     * edited copy, see {@link #editPerson}. Only the references are copied, which is cheap even for millions
+     * of persons.
+     */
+    private List<Person> pinPersons() {
+        pinningTasks++;
+        return new ArrayList<>(personData);
+    }
+
+    /**
+     * Ends the pin of {@link #pinPersons} when the task that reads the persons is done.
+     */
+    private void unpinWhenDone(Task<?> task) {
+        task.stateProperty().addListener((observable, oldState, newState) -> {
+            if (newState == Worker.State.SUCCEEDED || newState == Worker.State.FAILED || newState == Worker.State.CANCELLED) {
+                pinningTasks--;
+            }
+        });
+    }
+
     /**
      * Returns the person file preference, i.e. the file that was last opened.
      * The preference is read from the OS specific registry. If no such
@@ -207,55 +570,290 @@ public class Main extends Application {
         Preferences preferences = Preferences.userNodeForPackage(Main.class);
         if (file != null) {
             preferences.put("filePath", file.getPath());
-            primaryStage.setTitle("Persons App - " + file.getName());
         } else {
             preferences.remove("filePath");
-            primaryStage.setTitle("Persons App");
         }
+        updateTitle();
     }
 
     /**
-     * Loads person data from the specified file. The current person data will be replaced.
+     * Shows the name of the open file in the title, with a star while there are unsaved changes.
      */
-    public void loadPersonDataFromFile(File file) {
-        try {
-            JAXBContext context = JAXBContext.newInstance(PersonListWrapper.class);
-            Unmarshaller unmarshaller = context.createUnmarshaller();
-
-            // Reading XML from the file and unmarshalling.
-            PersonListWrapper wrapper = (PersonListWrapper) unmarshaller.unmarshal(file);
+    private void updateTitle() {
+        if (isBrowsing()) {
+            primaryStage.setTitle("Persons App - " + browsedFile.getName() + " (browsing)");
+            return;
+        }
+        File file = getPersonFilePath();
+        String title = file != null ? "Persons App - " + file.getName() : "Persons App";
+        primaryStage.setTitle(changeLog.isDirty() ? title + " *" : title);
+    }
 
-            personData.clear();
-            personData.addAll(wrapper.getPersons());
+    /**
+     * Loads person data from the specified file in the background. The current person data will be replaced;
+     * a load that is still running is cancelled.
+     */
+    public void loadPersonDataFromFile(File file) {
+        cancelLoading();
+        closeBrowsedFile();
+        syncedFile = null;
+        // A snapshot save still running must not make its file the open one.
+        snapshotGeneration++;
 
+        LoadPersonsTask task = new LoadPersonsTask(file, personData, changeLog);
+        task.setOnSucceeded(event -> {
+            if (task == loadTask) {
+                loading.set(false);
+            }
             // Save the file path to the registry.
             setPersonFilePath(file);
-        } catch (Exception e) {
+            // Persons with new or reassigned ids do not match the file, the first save writes it with their ids.
+            if (task == loadTask && !task.isIdsAssigned()) {
+                syncedFile = file;
+            }
+            if (task.getMalformedRowCount() > 0) {
+                showMalformedRows(file, task);
+            }
+        });
+        task.setOnCancelled(event -> {
+            // Also cancelled with the button of the status bar, not only by cancelLoading().
+            if (task == loadTask) {
+                loading.set(false);
+            }
+            forgetPartiallyLoadedFile(task);
+        });
+        task.setOnFailed(event -> {
+            if (task == loadTask) {
+                loading.set(false);
+            }
+            task.getException().printStackTrace();
+            forgetPartiallyLoadedFile(task);
             showErrorDialog("Could not load data", "Could not load data from file:\n" + file.getPath());
+        });
+        loadTask = task;
+        loading.set(true);
+        runInBackground(task);
+    }
+
+    /**
+     * Returns true while a file is being loaded. The table holds only a part of it then, so it cannot
+     * be saved.
+     */
+    public boolean isLoading() {
+        return loading.get();
+    }
+
+    public ReadOnlyBooleanProperty loadingProperty() {
+        return loading.getReadOnlyProperty();
+    }
+
+    /**
+     * Shows one summary of the rows that could not be read, instead of failing the whole file.
+     */
+    private void showMalformedRows(File file, LoadPersonsTask task) {
+        StringBuilder content = new StringBuilder(String.join("\n", task.getMalformedRows()));
+        int notShown = task.getMalformedRowCount() - task.getMalformedRows().size();
+        if (notShown > 0) {
+            content.append(String.format("%n... and %d more", notShown));
+        }
+        Alert alert = new Alert(Alert.AlertType.WARNING);
+        alert.initOwner(primaryStage);
+        alert.setTitle("Malformed rows");
+        alert.setHeaderText(String.format("Skipped %d malformed rows of %s", task.getMalformedRowCount(), file.getName()));
+        alert.setContentText(content.toString());
+        alert.showAndWait();
+    }
+
+    /**
+     * Cancels the running load, if any. Persons that are already in the table stay there.
+     */
+    public void cancelLoading() {
+        if (loadTask != null) {
+            loadTask.cancel();
+            loadTask = null;
+            loading.set(false);
         }
     }
 
     /**
-     * Saves the current person data to the specified file.
+     * The table holds only a part of the file after a cancelled or failed load. It must not be saved
+     * over the file by a plain "Save", so the file path is dropped.
+     */
+    private void forgetPartiallyLoadedFile(LoadPersonsTask task) {
+        if (task.isTargetReplaced()) {
+            setPersonFilePath(null);
+        }
+    }
+
+    /**
+     * Saves the current person data to the specified file in the background. If the file holds the data
+     * as of the last save, only the changes since then are appended to its journal; otherwise the whole
+     * file is written. Nothing is saved while a file is loading: the save would run after the load and
+     * write the part of the file that had been loaded when it was started.
      */
     public void savePersonDataToFile(File file) {
-        try {
-            JAXBContext context = JAXBContext.newInstance(PersonListWrapper.class);
-            Marshaller marshaller = context.createMarshaller();
-            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+        if (isLoading()) {
+            return;
+        }
+        if (isBrowsing()) {
+            saveBrowsedData(file);
+        } else if (file.equals(syncedFile)) {
+            saveChangesToJournal(file);
+        } else {
+            saveSnapshot(file);
+        }
+    }
 
-            // Wrapping our person data.
-            PersonListWrapper wrapper = new PersonListWrapper();
-            wrapper.setPersons(personData);
+    private void saveSnapshot(File file) {
+        // Edits made while the task runs replace persons instead of changing them and go into the next save.
+        SavePersonsTask task = new SavePersonsTask(pinPersons(), file);
+        unpinWhenDone(task);
+        Map<Integer, Person> savedChanges = changeLog.drain();
+        // Until the snapshot is on disk the journal must not be appended to.
+        syncedFile = null;
+        int generation = ++snapshotGeneration;
+        task.setOnSucceeded(event -> {
+            // After "New", another file or a newer save the table no longer holds what was saved.
+            if (generation == snapshotGeneration) {
+                // Save the file path to the registry.
+                setPersonFilePath(file);
+                syncedFile = file;
+            }
+        });
+        task.setOnFailed(event -> {
+            task.getException().printStackTrace();
+            // Only to keep the data marked as unsaved, the next save writes the whole file anyway.
+            changeLog.restore(savedChanges);
+            showErrorDialog("Could not save data", "Could not save data to file:\n" + file.getPath());
+        });
+        runInBackground(task);
+    }
 
-            // Marshalling and saving XML to the file.
-            marshaller.marshal(wrapper, file);
+    private void saveBrowsedData(File file) {
+        // Unchanged rows are read from the browsed file while the task runs, even if it is closed meanwhile.
+        SavePersonsTask task = new SavePersonsTask(browsedData.snapshot(), file);
+        task.setOnFailed(event -> {
+            task.getException().printStackTrace();
+            showErrorDialog("Could not save data", "Could not save data to file:\n" + file.getPath());
+        });
+        runInBackground(task);
+    }
 
-            // Save the file path to the registry.
-            setPersonFilePath(file);
-        } catch (Exception e) {
+    private void saveChangesToJournal(File file) {
+        if (changeLog.isEmpty()) {
+            return;
+        }
+        AppendJournalTask task;
+        try {
+            task = new AppendJournalTask(changeLog.drain(), file);
+        } catch (IOException e) {
+            e.printStackTrace();
+            syncedFile = null;
+            saveSnapshot(file);
+            return;
+        }
+        task.setOnSucceeded(event -> {
+            if (task.getValue() > PersonJournal.COMPACTION_THRESHOLD) {
+                // The journal stays valid if compaction fails, it is only tried again after the next save.
+                CompactJournalTask compactTask = new CompactJournalTask(file);
+                compactTask.setOnFailed(failed -> compactTask.getException().printStackTrace());
+                runInBackground(compactTask);
+            }
+        });
+        task.setOnFailed(event -> {
+            task.getException().printStackTrace();
+            // The journal may end in a torn record now, the next save writes the whole file instead.
+            changeLog.restore(task.getChanges());
+            syncedFile = null;
             showErrorDialog("Could not save data", "Could not save data to file:\n" + file.getPath());
+        });
+        runInBackground(task);
+    }
+
+    /**
+     * Opens a binary snapshot for browsing. The table reads the rows from the file as it shows them and keeps
+     * only a bounded number in memory, so snapshots too large for the heap can be viewed and edited; edited
+     * persons are written with "Save As". The persons of the application are dropped first, as by "New",
+     * after autosave has saved their changes. The browsed file does not become the file opened at startup.
+     */
+    public void browsePersonFile(File file) {
+        PersonBinaryFile snapshot;
+        try {
+            snapshot = PersonBinaryFile.open(file);
+        } catch (IOException e) {
+            e.printStackTrace();
+            showErrorDialog("Could not open file", "Could not open snapshot:\n" + file.getPath());
+            return;
+        }
+        cancelLoading();
+        closeBrowsedFile();
+        dropPersonData();
+
+        browsedFile = file;
+        browsedSnapshot = snapshot;
+        browsedData = new VirtualPersonList(snapshot.size(), snapshot::get, VirtualPersonList.DEFAULT_CACHE_CAPACITY);
+        personOverviewController.showBrowsedData(browsedData);
+        updateTitle();
+    }
+
+    /**
+     * Starts an empty address book that belongs to no file. The persons shown before are dropped after
+     * autosave has saved their changes.
+     */
+    public void newPersonData() {
+        cancelLoading();
+        closeBrowsedFile();
+        dropPersonData();
+        setPersonFilePath(null);
+    }
+
+    /**
+     * Empties the table, after autosave has saved the changes of the open file. Removing the persons is
+     * no change to be saved, and neither the journal of that file nor a snapshot save still running may
+     * be used for the next save.
+     */
+    private void dropPersonData() {
+        if (autosaveEnabled) {
+            autosave();
+        }
+        syncedFile = null;
+        snapshotGeneration++;
+        changeLog.runUnrecorded(personData::clear);
+        changeLog.clear();
+    }
+
+    /**
+     * Closes the browsed snapshot, if any, and shows the persons of the application again. Edits that were
+     * not saved are lost.
+     */
+    public void closeBrowsedFile() {
+        if (!isBrowsing()) {
+            return;
+        }
+        try {
+            // A save still reading the rows is not affected, the mapping outlives the file channel.
+            browsedSnapshot.close();
+        } catch (IOException e) {
+            e.printStackTrace();
         }
+        browsedFile = null;
+        browsedSnapshot = null;
+        browsedData = null;
+        personOverviewController.showPersonData();
+        updateTitle();
+    }
+
+    public boolean isBrowsing() {
+        return browsedFile != null;
+    }
+
+    /**
+     * Runs the task on the persistence thread and shows its progress in the status bar. Tasks run one
+     * after another, so a save never overlaps a load.
+     */
+    private void runInBackground(Task<?> task) {
+        rootLayoutController.showProgress(task);
+        persistenceExecutor.submit(task);
     }
 
     private void showErrorDialog(String header, String message) {
@@ -267,29 +865,208 @@ public class Main extends Application {
     }
 
     /**
-     * Opens a dialog to show birthday statistics.
+     * Looks for persons with exactly the same values in the background and offers to merge them.
+     */
+    public void findDuplicates() {
+        // The search reads pinned persons, which edits do not change; persons replaced or removed in the
+        // meantime are skipped by the merge.
+        List<Person> snapshot = pinPersons();
+        Task<DuplicateFinder.Result> task = new Task<DuplicateFinder.Result>() {
+            @Override
+            protected DuplicateFinder.Result call() {
+                updateMessage("Looking for duplicates among " + snapshot.size() + " persons...");
+                DuplicateFinder.Result result = DuplicateFinder.find(snapshot);
+                Metrics.timer("duplicates.find.time").record(result.getElapsedNanos());
+                updateMessage(String.format("Found %d duplicates in %d ms", result.getDuplicateCount(), result.getElapsedNanos() / 1_000_000));
+                return result;
+            }
+        };
+        unpinWhenDone(task);
+        task.setOnSucceeded(event -> showDuplicates(task.getValue()));
+        task.setOnFailed(event -> task.getException().printStackTrace());
+        runInBackground(task);
+    }
+
+    private void showDuplicates(DuplicateFinder.Result result) {
+        List<List<Person>> groups = result.getGroups();
+        Alert alert = new Alert(groups.isEmpty() ? Alert.AlertType.INFORMATION : Alert.AlertType.CONFIRMATION);
+        alert.initOwner(primaryStage);
+        alert.setTitle("Duplicates");
+        alert.setHeaderText(String.format("%d duplicates in %d groups (searched %d persons in %d ms)",
+                result.getDuplicateCount(), groups.size(), result.getSearchedCount(), result.getElapsedNanos() / 1_000_000));
+        if (groups.isEmpty()) {
+            alert.setContentText("There are no duplicates.");
+            alert.showAndWait();
+            return;
+        }
+
+        StringBuilder content = new StringBuilder("The person with the lowest id of every group is kept.\n");
+        int shown = Math.min(groups.size(), MAX_DUPLICATE_GROUPS_SHOWN);
+        for (List<Person> group : groups.subList(0, shown)) {
+            Person kept = group.get(0);
+            content.append(String.format("%n%s %s: keep #%d, remove %d", kept.getFirstName(), kept.getLastName(), kept.getId(), group.size() - 1));
+        }
+        if (shown < groups.size()) {
+            content.append(String.format("%n... and %d more groups", groups.size() - shown));
+        }
+        alert.setContentText(content.toString());
+
+        ButtonType merge = new ButtonType("Merge", ButtonBar.ButtonData.OK_DONE);
+        alert.getButtonTypes().setAll(merge, ButtonType.CANCEL);
+        Optional<ButtonType> answer = alert.showAndWait();
+        if (answer.isPresent() && answer.get() == merge) {
+            mergeDuplicates(groups);
+        }
+    }
+
+    /**
+     * Removes every person of a group but the first one, the one with the lowest id. Groups whose kept
+     * person is no longer in the list are skipped, as are persons changed since the search.
+     *
+     * @return the number of persons removed
+     */
+    public int mergeDuplicates(List<List<Person>> groups) {
+        Set<Person> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (List<Person> group : groups) {
+            Person keep = group.get(0);
+            // Ids are unique in the list (a load renumbers repeated ones), so the index tells whether it is still there.
+            if (personIdIndex.get(keep.getId()) != keep) {
+                continue;
+            }
+            for (Person duplicate : group.subList(1, group.size())) {
+                if (DuplicateFinder.sameValues(keep, duplicate)) {
+                    removed.add(duplicate);
+                }
+            }
+        }
+        return removePersons(removed);
+    }
+
+    /**
+     * Opens a dialog to show statistics. The birthday chart is always up to date, the other charts are
+     * computed again every time the dialog is opened.
      */
     public void showBirthdayStatistics() {
+        long start = System.nanoTime();
+        FlightEvents.Span event = FlightEvents.ui("birthdayStatistics", BIRTHDAY_STATS_SCENE_PATH);
         try {
-            // Load the fxml file and create a new stage for the popup.
-            FXMLLoader loader = new FXMLLoader();
-            loader.setLocation(Main.class.getResource(BIRTHDAY_STATS_SCENE_PATH));
-            AnchorPane page = loader.load();
-            Stage BirthdayStatsDialogStage = new Stage();
-            BirthdayStatsDialogStage.setTitle("Birthday Statistics");
-            BirthdayStatsDialogStage.initModality(Modality.WINDOW_MODAL);
-            BirthdayStatsDialogStage.initOwner(primaryStage);
-            BirthdayStatsDialogStage.getIcons().add(new Image(BIRTHDAY_STATS_ICON_URL));
-            Scene scene = new Scene(page);
-            BirthdayStatsDialogStage.setScene(scene);
-
-            // Set the persons into the controller.
-            BirthdayStatisticsController controller = loader.getController();
-            controller.setPersonData(personData);
-
-            BirthdayStatsDialogStage.show();
+            if (birthdayStatsDialog == null) {
+                // Load the fxml file and create a new stage for the popup.
+                FXMLLoader loader = loadFxml(BIRTHDAY_STATS_SCENE_PATH);
+                Stage birthdayStatsDialogStage = createDialogStage(loader, "Statistics", BIRTHDAY_STATS_ICON, Modality.WINDOW_MODAL);
+
+                // The chart is bound to the histogram and stays up to date while the dialog is hidden.
+                BirthdayStatisticsController controller = loader.getController();
+                controller.setHistogram(birthdayHistogram);
+                birthdayStatsDialog = new CachedWindow<>("birthdayStatistics", birthdayStatsDialogStage, controller);
+            }
+            birthdayStatsDialog.show(start, event);
+            computeStatistics(birthdayStatsDialog.getController());
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
+
+    /**
+     * Shows the statistics in the dialog. Unless the persons have changed since they were last computed,
+     * they are taken from the cache; otherwise they are aggregated in the background and shown when ready.
+     */
+    private void computeStatistics(BirthdayStatisticsController controller) {
+        long version = personDataVersion.get();
+        LocalDate today = LocalDate.now();
+        PersonStatistics cached = statisticsCache.get(version, today);
+        if (cached != null) {
+            controller.setStatistics(cached);
+            return;
+        }
+        if (version == statisticsVersionInProgress) {
+            // Opened again while the same data is aggregated, the running task shows the result.
+            return;
+        }
+
+        // Edits made in the meantime replace persons instead of changing them and count the next time.
+        List<Person> snapshot = pinPersons();
+        controller.showComputing(snapshot.size());
+        statisticsVersionInProgress = version;
+        Task<PersonStatistics> task = new Task<PersonStatistics>() {
+            @Override
+            protected PersonStatistics call() {
+                updateMessage("Computing statistics of " + snapshot.size() + " persons...");
+                PersonStatistics statistics = PersonAggregator.aggregate(snapshot, today);
+                Metrics.timer("statistics.aggregate.time").record(statistics.getElapsedNanos());
+                updateMessage(String.format("Computed statistics of %d persons in %d ms", snapshot.size(), statistics.getElapsedNanos() / 1_000_000));
+                return statistics;
+            }
+        };
+        unpinWhenDone(task);
+        task.setOnSucceeded(event -> {
+            statisticsCache.put(version, today, task.getValue());
+            finishStatistics(version);
+            controller.setStatistics(task.getValue());
+        });
+        task.setOnFailed(event -> {
+            task.getException().printStackTrace();
+            finishStatistics(version);
+        });
+        runInBackground(task);
+    }
+
+    private void finishStatistics(long version) {
+        if (version == statisticsVersionInProgress) {
+            statisticsVersionInProgress = -1;
+        }
+    }
+
+    /**
+     * Opens the diagnostics window, or brings it to the front if it is open already.
+     */
+    public void showDiagnostics() {
+        long start = System.nanoTime();
+        FlightEvents.Span event = FlightEvents.ui("diagnostics", DIAGNOSTICS_SCENE_PATH);
+        try {
+            if (diagnosticsWindow == null) {
+                FXMLLoader loader = loadFxml(DIAGNOSTICS_SCENE_PATH);
+                // Not modal, so the metrics can be watched while working in the main window.
+                Stage diagnosticsStage = createDialogStage(loader, "Diagnostics", PRIMARY_STAGE_ICON, Modality.NONE);
+                DiagnosticsController controller = loader.getController();
+                controller.setDialogStage(diagnosticsStage);
+                diagnosticsWindow = new CachedWindow<>("diagnostics", diagnosticsStage, controller);
+            }
+            diagnosticsWindow.show(start, event);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Creates a stage owned by the primary stage for the loaded fxml file.
+     */
+    private Stage createDialogStage(FXMLLoader loader, String title, String icon, Modality modality) {
+        Stage stage = new Stage();
+        stage.setTitle(title);
+        stage.getIcons().add(icon(icon));
+        stage.initModality(modality);
+        stage.initOwner(primaryStage);
+        stage.setScene(new Scene(loader.getRoot()));
+        return stage;
+    }
+
+    /**
+     * Returns the icon from the classpath. Every icon is decoded once, in the background; until then
+     * the image is empty and windows show it as soon as it is ready.
+     */
+    private Image icon(String resource) {
+        return icons.computeIfAbsent(resource, key -> new Image(Main.class.getResource(key).toExternalForm(), true));
+    }
+
+    /**
+     * Loads the fxml file and records the time it took as {@code fxml.load.<file name>}.
+     */
+    private static FXMLLoader loadFxml(String path) throws IOException {
+        long start = System.nanoTime();
+        FXMLLoader loader = new FXMLLoader(Main.class.getResource(path));
+        loader.load();
+        Metrics.timer("fxml.load." + path.substring(path.lastIndexOf('/') + 1)).recordSince(start);
+        return loader;
+    }
 }
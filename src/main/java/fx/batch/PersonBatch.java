@@ -0,0 +1,204 @@
+package fx.batch;
+
+import fx.model.BirthdayHistogram;
+import fx.model.DuplicateFinder;
+import fx.model.Person;
+import fx.persistence.PersonFileFormat;
+import fx.persistence.PersonJournal;
+import fx.persistence.PersonWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.time.Month;
+import java.time.format.TextStyle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Command line entry point for jobs without a display. Uses the model and persistence classes only,
+ * the JavaFX toolkit is never started (this class must not extend {@code Application}, or the launcher
+ * would start it).
+ * <pre>
+ * java -cp ... fx.batch.PersonBatch convert  &lt;in&gt; &lt;out&gt;
+ * java -cp ... fx.batch.PersonBatch generate &lt;count&gt; &lt;out&gt; [seed]
+ * java -cp ... fx.batch.PersonBatch dedupe   &lt;in&gt; &lt;out&gt;
+ * java -cp ... fx.batch.PersonBatch stats    &lt;in&gt;
+ * java -cp ... fx.batch.PersonBatch compact  &lt;file&gt;
+ * </pre>
+ * The format of every file follows from its extension. Input files are read with their journal, like in
+ * the app, and are left as they are. {@code convert} and {@code stats} stream the input in batches; {@code dedupe} and
+ * {@code generate} hold all persons in memory, but no scene graph.
+ */
+public final class PersonBatch {
+
+    private static final int EXIT_OK = 0;
+    private static final int EXIT_FAILED = 1;
+    private static final int EXIT_USAGE = 2;
+
+    private final PrintStream out;
+
+    PersonBatch(PrintStream out) {
+        this.out = out;
+    }
+
+    public static void main(String[] args) {
+        System.exit(new PersonBatch(System.out).run(args));
+    }
+
+    int run(String[] args) {
+        if (args.length == 0) {
+            return usage();
+        }
+        long start = System.nanoTime();
+        try {
+            switch (args[0]) {
+                case "convert":
+                    if (args.length != 3) {
+                        return usage();
+                    }
+                    convert(new File(args[1]), new File(args[2]));
+                    break;
+                case "generate":
+                    if (args.length != 3 && args.length != 4) {
+                        return usage();
+                    }
+                    generate(Integer.parseInt(args[1]), new File(args[2]), args.length == 4 ? Long.valueOf(args[3]) : null);
+                    break;
+                case "dedupe":
+                    if (args.length != 3) {
+                        return usage();
+                    }
+                    dedupe(new File(args[1]), new File(args[2]));
+                    break;
+                case "stats":
+                    if (args.length != 2) {
+                        return usage();
+                    }
+                    stats(new File(args[1]));
+                    break;
+                case "compact":
+                    if (args.length != 2) {
+                        return usage();
+                    }
+                    convert(new File(args[1]), new File(args[1]));
+                    break;
+                default:
+                    return usage();
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Not a number: " + e.getMessage());
+            return EXIT_USAGE;
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println(args[0] + " failed: " + e.getMessage());
+            e.printStackTrace();
+            return EXIT_FAILED;
+        }
+        out.println(String.format("Done in %d ms", (System.nanoTime() - start) / 1_000_000));
+        return EXIT_OK;
+    }
+
+    private int usage() {
+        System.err.println("Usage: PersonBatch convert <in> <out>");
+        System.err.println("       PersonBatch generate <count> <out> [seed]");
+        System.err.println("       PersonBatch dedupe <in> <out>");
+        System.err.println("       PersonBatch stats <in>");
+        System.err.println("       PersonBatch compact <file>");
+        System.err.println("Formats by extension: " + formats());
+        return EXIT_USAGE;
+    }
+
+    private static String formats() {
+        List<String> patterns = new ArrayList<>();
+        for (PersonFileFormat format : PersonFileFormat.values()) {
+            patterns.add(format.getPattern());
+        }
+        return String.join(", ", patterns);
+    }
+
+    /**
+     * Streams the input into the output. With the same file for both, the journal is folded into the file.
+     */
+    private void convert(File in, File outFile) throws IOException {
+        int count;
+        try (PersonWriter writer = PersonFileFormat.forFile(outFile).createWriter(outFile)) {
+            PersonJournal.readWithChanges(in, batch -> writeAll(writer, batch));
+            writer.commit();
+            count = writer.getCount();
+        }
+        // The output holds everything, a journal left next to it is obsolete.
+        deleteJournal(outFile);
+        out.println(String.format("Wrote %d persons to %s", count, outFile));
+    }
+
+    private void generate(int count, File outFile, Long seed) throws IOException {
+        List<Person> persons = seed != null ? Person.generateRandomPersons(count, seed) : Person.generateRandomPersons(count);
+        write(persons, outFile);
+        out.println(String.format("Generated %d persons into %s", persons.size(), outFile));
+    }
+
+    private void dedupe(File in, File outFile) throws IOException {
+        List<Person> persons = new ArrayList<>();
+        PersonJournal.readWithChanges(in, persons::addAll);
+
+        DuplicateFinder.Result result = DuplicateFinder.find(persons);
+        Set<Person> duplicates = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (List<Person> group : result.getGroups()) {
+            // The first person of a group has the lowest id and is kept.
+            duplicates.addAll(group.subList(1, group.size()));
+        }
+        persons.removeIf(duplicates::contains);
+
+        write(persons, outFile);
+        out.println(String.format("Removed %d duplicates in %d groups (search took %d ms), wrote %d persons to %s",
+                result.getDuplicateCount(), result.getGroups().size(), result.getElapsedNanos() / 1_000_000,
+                persons.size(), outFile));
+    }
+
+    private void stats(File in) throws IOException {
+        BirthdayHistogram histogram = new BirthdayHistogram();
+        int[] withoutBirthday = {0};
+        int count = PersonJournal.readWithChanges(in, batch -> {
+            histogram.personsAdded(batch);
+            for (Person person : batch) {
+                if (person.getBirthday() == null) {
+                    withoutBirthday[0]++;
+                }
+            }
+        });
+
+        out.println(String.format("%s: %d persons, %d without birthday", in, count, withoutBirthday[0]));
+        for (int month = 0; month < BirthdayHistogram.MONTHS; month++) {
+            out.println(String.format("%-10s %d", Month.of(month + 1).getDisplayName(TextStyle.FULL, Locale.ENGLISH),
+                    histogram.getMonthCount(month)));
+        }
+    }
+
+    private void write(List<Person> persons, File outFile) throws IOException {
+        try (PersonWriter writer = PersonFileFormat.forFile(outFile).createWriter(outFile)) {
+            writeAll(writer, persons);
+            writer.commit();
+        }
+        deleteJournal(outFile);
+    }
+
+    private static void deleteJournal(File file) throws IOException {
+        Files.deleteIfExists(PersonJournal.fileFor(file).toPath());
+    }
+
+    private static void writeAll(PersonWriter writer, List<Person> persons) {
+        try {
+            for (Person person : persons) {
+                writer.write(person);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
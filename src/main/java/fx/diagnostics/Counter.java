@@ -0,0 +1,44 @@
+package fx.diagnostics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A number that only grows, e.g. the persons loaded since the start. Threads updating it at the same time
+ * do not contend on one field.
+ */
+public final class Counter implements Metric {
+
+    private final String name;
+    private final LongAdder value = new LongAdder();
+
+    Counter(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    public void increment() {
+        value.increment();
+    }
+
+    public void add(long amount) {
+        value.add(amount);
+    }
+
+    public long get() {
+        return value.sum();
+    }
+
+    @Override
+    public MetricSnapshot snapshot() {
+        return MetricSnapshot.ofCounter(name, value.sum());
+    }
+
+    @Override
+    public void reset() {
+        value.reset();
+    }
+}
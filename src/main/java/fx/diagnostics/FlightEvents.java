@@ -0,0 +1,99 @@
+package fx.diagnostics;
+
+import java.io.File;
+
+/**
+ * Creates the flight recorder events of the application, or events that do nothing on a JVM without the
+ * {@code jdk.jfr} API (Java 8 before 8u262).
+ * <p>
+ * The event classes extend {@code jdk.jfr.Event} and cannot even be loaded there, so the rest of the
+ * application sees them only through {@link Span} and {@link IoSpan}. Whether the API is there is checked
+ * once; the event classes are touched only by {@link Jfr}, which is loaded on the first event if it is.
+ */
+public final class FlightEvents {
+
+    /**
+     * An event whose duration started when it was created.
+     */
+    public interface Span {
+
+        /**
+         * Ends the duration and commits the event, if it is recorded.
+         */
+        void commit();
+    }
+
+    /**
+     * An event of reading or writing a file, see {@link PersistenceEvent#complete}.
+     */
+    public interface IoSpan {
+
+        void complete(long fileSize, int records, boolean succeeded);
+    }
+
+    private static final boolean AVAILABLE = isJfrPresent();
+    private static final Span NO_SPAN = () -> {
+    };
+    private static final IoSpan NO_IO_SPAN = (fileSize, records, succeeded) -> {
+    };
+
+    private FlightEvents() {
+    }
+
+    /**
+     * Returns true if the JVM has the {@code jdk.jfr} API, so events can be recorded.
+     */
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    /**
+     * Begins a {@link PersistenceEvent}.
+     */
+    public static IoSpan persistence(String operation, File file) {
+        return AVAILABLE ? Jfr.persistence(operation, file) : NO_IO_SPAN;
+    }
+
+    /**
+     * Begins a {@link GenerateEvent}.
+     */
+    public static Span generate(int records, int parallelism) {
+        return AVAILABLE ? Jfr.generate(records, parallelism) : NO_SPAN;
+    }
+
+    /**
+     * Begins a {@link UiEvent}.
+     *
+     * @param scene path of the fxml file of the window
+     */
+    public static Span ui(String window, String scene) {
+        return AVAILABLE ? Jfr.ui(window, scene) : NO_SPAN;
+    }
+
+    private static boolean isJfrPresent() {
+        try {
+            Class.forName("jdk.jfr.Event", false, FlightEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * The only place that refers to the event classes; loaded only if {@link #AVAILABLE}.
+     */
+    private static final class Jfr {
+
+        static IoSpan persistence(String operation, File file) {
+            return new PersistenceEvent(operation, file);
+        }
+
+        static Span generate(int records, int parallelism) {
+            return new GenerateEvent(records, parallelism);
+        }
+
+        static Span ui(String window, String scene) {
+            return new UiEvent(window, scene);
+        }
+    }
+}
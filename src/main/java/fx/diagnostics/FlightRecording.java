@@ -0,0 +1,107 @@
+package fx.diagnostics;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Continuous flight recording, started by the {@value #FLAG} command line flag.
+ * <p>
+ * The recording keeps the events of the last {@link #MAX_AGE} in a ring buffer on disk, at most
+ * {@value #DEFAULT_MAX_SIZE_MB} MB or the size given as {@code --jfr=<MB>}; older data is dropped. It uses the
+ * low overhead "default" settings of the JDK (GC, I/O above a threshold, lock contention) plus the events
+ * of this package. When a user reports a stall, the last minutes are dumped from the diagnostics window,
+ * or from outside with {@code jcmd <pid> JFR.dump name=persons-app filename=stall.jfr}.
+ * Needs a JDK with the {@code jdk.jfr} API (8u262 or newer).
+ */
+public final class FlightRecording {
+
+    public static final String FLAG = "--jfr";
+    static final String RECORDING_NAME = "persons-app";
+    static final long DEFAULT_MAX_SIZE_MB = 64;
+    static final Duration MAX_AGE = Duration.ofHours(1);
+
+    private static volatile Recording recording;
+
+    private FlightRecording() {
+    }
+
+    /**
+     * Starts the recording if the arguments contain the flag. Failing to start it is reported and
+     * otherwise ignored, the application runs without it.
+     *
+     * @return the arguments without the flag
+     */
+    public static String[] startIfRequested(String[] args) {
+        List<String> remaining = new ArrayList<>(args.length);
+        Long maxSizeMb = null;
+        for (String arg : args) {
+            if (arg.equals(FLAG)) {
+                maxSizeMb = DEFAULT_MAX_SIZE_MB;
+            } else if (arg.startsWith(FLAG + "=")) {
+                try {
+                    maxSizeMb = Long.parseLong(arg.substring(FLAG.length() + 1));
+                } catch (NumberFormatException e) {
+                    System.err.println("Ignoring " + arg + ", the maximum size must be a number of megabytes");
+                }
+            } else {
+                remaining.add(arg);
+            }
+        }
+        if (maxSizeMb != null && !FlightEvents.isAvailable()) {
+            System.err.println("Ignoring " + FLAG + ", this JVM has no flight recorder API (needs 8u262 or newer)");
+        } else if (maxSizeMb != null) {
+            try {
+                start(maxSizeMb * 1024 * 1024);
+                System.out.println("Flight recording '" + RECORDING_NAME + "' started, at most " + maxSizeMb + " MB");
+            } catch (IOException | ParseException | RuntimeException e) {
+                System.err.println("Could not start the flight recording: " + e);
+            }
+        }
+        return remaining.toArray(new String[0]);
+    }
+
+    /**
+     * Starts the continuous recording, unless it is running already.
+     */
+    public static synchronized void start(long maxSizeBytes) throws IOException, ParseException {
+        if (recording != null) {
+            return;
+        }
+        if (!FlightRecorder.isAvailable()) {
+            throw new IllegalStateException("Flight recorder is not available in this JVM");
+        }
+        Recording continuous = new Recording(Configuration.getConfiguration("default"));
+        continuous.setName(RECORDING_NAME);
+        continuous.setToDisk(true);
+        continuous.setMaxSize(maxSizeBytes);
+        continuous.setMaxAge(MAX_AGE);
+        continuous.enable(PersistenceEvent.class);
+        continuous.enable(UiEvent.class);
+        continuous.enable(GenerateEvent.class);
+        continuous.start();
+        recording = continuous;
+    }
+
+    public static boolean isRunning() {
+        return recording != null;
+    }
+
+    /**
+     * Writes what the recording currently holds to the file; the recording goes on.
+     */
+    public static void dump(Path file) throws IOException {
+        Recording running = recording;
+        if (running == null) {
+            throw new IllegalStateException("No flight recording is running, start the app with " + FLAG);
+        }
+        running.dump(file);
+    }
+}
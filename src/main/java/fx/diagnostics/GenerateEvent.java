@@ -0,0 +1,33 @@
+package fx.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of generating random persons. The work runs on the common fork-join pool, the
+ * event thread is the one that waited for it.
+ */
+@Name("fx.GeneratePersons")
+@Label("Generate Persons")
+@Category({"Persons App", "Model"})
+@Description("Generating random persons")
+public final class GenerateEvent extends Event implements FlightEvents.Span {
+
+    @Label("Records")
+    private final int records;
+
+    @Label("Parallelism")
+    private final int parallelism;
+
+    /**
+     * Creates the event and starts its duration; see {@link FlightEvents#generate}.
+     */
+    GenerateEvent(int records, int parallelism) {
+        this.records = records;
+        this.parallelism = parallelism;
+        begin();
+    }
+}
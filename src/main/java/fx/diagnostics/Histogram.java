@@ -0,0 +1,179 @@
+package fx.diagnostics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribution of non-negative values, e.g. durations or file sizes, with estimated percentiles.
+ * <p>
+ * Values are counted in buckets: every power of two is split into {@value #SUB_BUCKETS} buckets of equal
+ * width, so a percentile is off by at most 1/{@value #SUB_BUCKETS} of the value, for values from a
+ * nanosecond up to {@code Long.MAX_VALUE}. Memory is fixed (about 4 KB), recording is lock-free.
+ */
+public final class Histogram implements Metric {
+
+    /**
+     * What the values of a histogram measure, for display.
+     */
+    public enum Unit {
+        NONE(""),
+        NANOSECONDS("ns"),
+        BYTES("bytes"),
+        PER_SECOND("/s");
+
+        private final String symbol;
+
+        Unit(String symbol) {
+            this.symbol = symbol;
+        }
+
+        public String getSymbol() {
+            return symbol;
+        }
+
+        /**
+         * Formats a value for people: durations in milliseconds, sizes in KB or MB.
+         */
+        public String format(double value) {
+            switch (this) {
+                case NANOSECONDS:
+                    return String.format("%.2f ms", value / 1_000_000);
+                case BYTES:
+                    if (value >= 1024 * 1024) {
+                        return String.format("%.1f MB", value / (1024 * 1024));
+                    }
+                    return value >= 1024 ? String.format("%.1f KB", value / 1024) : String.format("%.0f B", value);
+                case PER_SECOND:
+                    return String.format("%.0f/s", value);
+                default:
+                    return String.format("%.0f", value);
+            }
+        }
+    }
+
+    private static final int SUB_BUCKET_BITS = 3;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /* Значения меньше SUB_BUCKETS считаются точно, дальше по SUB_BUCKETS корзин на каждую степень двойки до 2^62 */
+    private static final int BUCKETS = (62 - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final String name;
+    private final Unit unit;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+    Histogram(String name, Unit unit) {
+        this.name = name;
+        this.unit = unit;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    public Unit getUnit() {
+        return unit;
+    }
+
+    /**
+     * Records a value; negative values count as 0.
+     */
+    public void record(long value) {
+        value = Math.max(value, 0);
+        buckets.incrementAndGet(bucketOf(value));
+        count.increment();
+        sum.add(value);
+        min.accumulate(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Records the time since {@code startNanos}, a value of {@link System#nanoTime()}.
+     *
+     * @return the recorded time in nanoseconds
+     */
+    public long recordSince(long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        record(elapsed);
+        return elapsed;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public MetricSnapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return MetricSnapshot.ofHistogram(name, unit, 0, 0, 0, 0, 0, 0, 0);
+        }
+        long minValue = min.get();
+        long maxValue = max.get();
+        return MetricSnapshot.ofHistogram(name, unit, total, sum.sum(), minValue, maxValue,
+                percentile(counts, total, 0.50, minValue, maxValue),
+                percentile(counts, total, 0.95, minValue, maxValue),
+                percentile(counts, total, 0.99, minValue, maxValue));
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        min.reset();
+        max.reset();
+    }
+
+    /**
+     * Estimates the percentile by interpolating inside the bucket it falls into.
+     */
+    private static long percentile(long[] counts, long total, double fraction, long minValue, long maxValue) {
+        long rank = Math.max(1, (long) Math.ceil(total * fraction));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            if (seen + counts[i] >= rank) {
+                long width = bucketWidth(i);
+                long value = bucketStart(i) + (long) (width * ((double) (rank - seen) / counts[i])) - (width > 1 ? 1 : 0);
+                return Math.min(Math.max(value, minValue), maxValue);
+            }
+            seen += counts[i];
+        }
+        return maxValue;
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketStart(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    private static long bucketWidth(int bucket) {
+        return bucket < SUB_BUCKETS ? 1 : 1L << (bucket / SUB_BUCKETS - 1);
+    }
+}
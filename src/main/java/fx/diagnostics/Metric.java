@@ -0,0 +1,16 @@
+package fx.diagnostics;
+
+/**
+ * A named measurement of the {@link Metrics} registry. Implementations are safe to update from any thread.
+ */
+public interface Metric {
+
+    String getName();
+
+    /**
+     * Returns the current values. Updates that run at the same time may be seen partly.
+     */
+    MetricSnapshot snapshot();
+
+    void reset();
+}
@@ -0,0 +1,100 @@
+package fx.diagnostics;
+
+/**
+ * The values of a {@link Metric} at one moment. Counters only have a count; the other values are those of
+ * histograms, percentiles are estimates (see {@link Histogram}).
+ */
+public final class MetricSnapshot {
+
+    public enum Type {
+        COUNTER, HISTOGRAM
+    }
+
+    private final String name;
+    private final Type type;
+    private final Histogram.Unit unit;
+    private final long count;
+    private final long sum;
+    private final long min;
+    private final long max;
+    private final long p50;
+    private final long p95;
+    private final long p99;
+
+    private MetricSnapshot(String name, Type type, Histogram.Unit unit, long count, long sum,
+                           long min, long max, long p50, long p95, long p99) {
+        this.name = name;
+        this.type = type;
+        this.unit = unit;
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+        this.p50 = p50;
+        this.p95 = p95;
+        this.p99 = p99;
+    }
+
+    static MetricSnapshot ofCounter(String name, long value) {
+        return new MetricSnapshot(name, Type.COUNTER, Histogram.Unit.NONE, value, 0, 0, 0, 0, 0, 0);
+    }
+
+    static MetricSnapshot ofHistogram(String name, Histogram.Unit unit, long count, long sum,
+                                      long min, long max, long p50, long p95, long p99) {
+        return new MetricSnapshot(name, Type.HISTOGRAM, unit, count, sum, min, max, p50, p95, p99);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Histogram.Unit getUnit() {
+        return unit;
+    }
+
+    /**
+     * Returns the value of a counter, or the number of values recorded by a histogram.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public double getMean() {
+        return count > 0 ? (double) sum / count : 0;
+    }
+
+    public long getMin() {
+        return min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP95() {
+        return p95;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    /**
+     * Returns true if there is something to show: a counter always, a histogram once it has values.
+     */
+    public boolean hasValues() {
+        return type == Type.COUNTER || count > 0;
+    }
+}
@@ -0,0 +1,125 @@
+package fx.diagnostics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Registry of the metrics of the application, for the diagnostics window and its export.
+ * <p>
+ * Metrics are created on first use and live as long as the application. Names are dotted paths, the
+ * first part names the area ({@code persistence.load.time}, {@code fxml.load.RootLayout.fxml}).
+ * Every method may be called from any thread; recording a value takes no lock, so metrics can stay in
+ * the code paths they measure.
+ */
+public final class Metrics {
+
+    private static final ConcurrentMap<String, Metric> METRICS = new ConcurrentHashMap<>();
+
+    private static final String CSV_HEADER = "name,type,unit,count,sum,mean,min,p50,p95,p99,max";
+
+    private Metrics() {
+    }
+
+    public static Counter counter(String name) {
+        return get(name, Counter.class, Counter::new);
+    }
+
+    public static Histogram histogram(String name, Histogram.Unit unit) {
+        Histogram histogram = get(name, Histogram.class, key -> new Histogram(key, unit));
+        if (histogram.getUnit() != unit) {
+            throw new IllegalArgumentException("Histogram " + name + " measures " + histogram.getUnit() + ", not " + unit);
+        }
+        return histogram;
+    }
+
+    /**
+     * Returns the histogram of durations with the name; record into it with {@link Histogram#recordSince(long)}.
+     */
+    public static Histogram timer(String name) {
+        return histogram(name, Histogram.Unit.NANOSECONDS);
+    }
+
+    private static <T extends Metric> T get(String name, Class<T> type, Function<String, T> factory) {
+        Metric metric = METRICS.get(name);
+        if (metric == null) {
+            metric = METRICS.computeIfAbsent(name, factory);
+        }
+        if (!type.isInstance(metric)) {
+            throw new IllegalArgumentException("Metric " + name + " is not a " + type.getSimpleName());
+        }
+        return type.cast(metric);
+    }
+
+    /**
+     * Records a completed read or write of records: the duration as {@code <name>.time}, the bytes as
+     * {@code <name>.bytes}, the throughput as {@code <name>.rate} and the total records as {@code <name>.records}.
+     *
+     * @param startNanos value of {@link System#nanoTime()} when the transfer started
+     */
+    public static void recordTransfer(String name, long startNanos, long bytes, long records) {
+        long elapsed = timer(name + ".time").recordSince(startNanos);
+        histogram(name + ".bytes", Histogram.Unit.BYTES).record(bytes);
+        histogram(name + ".rate", Histogram.Unit.PER_SECOND).record(elapsed > 0 ? records * 1_000_000_000L / elapsed : 0);
+        counter(name + ".records").add(records);
+    }
+
+    /**
+     * Returns the current values of all metrics, ordered by name.
+     */
+    public static List<MetricSnapshot> snapshot() {
+        List<MetricSnapshot> snapshots = new ArrayList<>(METRICS.size());
+        for (Metric metric : METRICS.values()) {
+            snapshots.add(metric.snapshot());
+        }
+        snapshots.sort(Comparator.comparing(MetricSnapshot::getName));
+        return snapshots;
+    }
+
+    /**
+     * Sets all metrics back to zero, e.g. before repeating a slow action to measure it alone.
+     */
+    public static void reset() {
+        for (Metric metric : METRICS.values()) {
+            metric.reset();
+        }
+    }
+
+    /**
+     * Writes the current values as CSV, one metric per line. Durations are in nanoseconds and sizes in
+     * bytes, the unit column names them; the histogram columns of counters are empty.
+     */
+    public static void writeCsv(Writer out) throws IOException {
+        out.write(CSV_HEADER);
+        out.write('\n');
+        for (MetricSnapshot snapshot : snapshot()) {
+            out.write(csvField(snapshot.getName()));
+            out.write(',');
+            out.write(snapshot.getType().name().toLowerCase(Locale.ROOT));
+            out.write(',');
+            out.write(snapshot.getUnit().getSymbol());
+            out.write(',');
+            out.write(Long.toString(snapshot.getCount()));
+            if (snapshot.getType() == MetricSnapshot.Type.HISTOGRAM) {
+                out.write(String.format(Locale.ROOT, ",%d,%.1f,%d,%d,%d,%d,%d", snapshot.getSum(), snapshot.getMean(),
+                        snapshot.getMin(), snapshot.getP50(), snapshot.getP95(), snapshot.getP99(), snapshot.getMax()));
+            } else {
+                out.write(",,,,,,,");
+            }
+            out.write('\n');
+        }
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
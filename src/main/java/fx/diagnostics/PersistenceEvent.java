@@ -0,0 +1,65 @@
+package fx.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.io.File;
+
+/**
+ * Flight recorder event of a load, save, journal append or compaction of an address book. Created and
+ * committed on the thread doing the I/O, which the recording stores as the event thread; shows next to
+ * the GC and file I/O events of the same time.
+ */
+@Name("fx.Persistence")
+@Label("Address Book I/O")
+@Category({"Persons App", "Persistence"})
+@Description("Load, save, journal append or compaction of an address book file")
+public final class PersistenceEvent extends Event implements FlightEvents.IoSpan {
+
+    @Label("Operation")
+    private final String operation;
+
+    @Label("File")
+    private final String path;
+
+    @Label("File Size")
+    @DataAmount
+    private long fileSize;
+
+    @Label("Records")
+    private int records;
+
+    @Label("Succeeded")
+    private boolean succeeded;
+
+    /**
+     * Creates the event and starts its duration; see {@link FlightEvents#persistence}.
+     */
+    PersistenceEvent(String operation, File file) {
+        this.operation = operation;
+        this.path = file.getPath();
+        begin();
+    }
+
+    /**
+     * Ends the duration and commits the event, if it is recorded.
+     *
+     * @param fileSize  the bytes read or written
+     * @param records   the persons or changes read or written
+     * @param succeeded false if the operation failed or was cancelled
+     */
+    @Override
+    public void complete(long fileSize, int records, boolean succeeded) {
+        end();
+        if (shouldCommit()) {
+            this.fileSize = fileSize;
+            this.records = records;
+            this.succeeded = succeeded;
+            commit();
+        }
+    }
+}
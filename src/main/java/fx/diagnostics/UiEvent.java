@@ -0,0 +1,35 @@
+package fx.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of building a window on the FX application thread: from the start of loading its
+ * scene until the window is on screen. A long one means the user saw the app hang.
+ */
+@Name("fx.Ui")
+@Label("Window Opening")
+@Category({"Persons App", "UI"})
+@Description("Loading the scene of a window and showing it")
+public final class UiEvent extends Event implements FlightEvents.Span {
+
+    @Label("Window")
+    private final String window;
+
+    @Label("Scene")
+    private final String scene;
+
+    /**
+     * Creates the event and starts its duration; see {@link FlightEvents#ui}.
+     *
+     * @param scene path of the fxml file of the window
+     */
+    UiEvent(String window, String scene) {
+        this.window = window;
+        this.scene = scene;
+        begin();
+    }
+}
@@ -0,0 +1,120 @@
+package fx.model;
+
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Number of persons having their birthday in each month and on each day of the year.
+ * <p>
+ * Kept up to date by a {@link PersonChangeTracker}: adding, removing or editing a person changes
+ * the counts in constant time, so the statistics never have to be computed over the whole list.
+ * The month counts are observable, a chart bound to them stays current while it is shown. They are set
+ * once per batch of added or removed persons, not once per person, so loading a large file does not
+ * update the chart millions of times.
+ * Persons without a birthday are not counted.
+ */
+public class BirthdayHistogram implements PersonChangeTracker.Listener {
+
+    public static final int MONTHS = 12;
+    public static final int DAYS_OF_YEAR = 366;
+
+    private final ReadOnlyIntegerWrapper[] monthCounts = new ReadOnlyIntegerWrapper[MONTHS];
+    private final int[] dayOfYearCounts = new int[DAYS_OF_YEAR];
+
+    public BirthdayHistogram() {
+        for (int month = 0; month < MONTHS; month++) {
+            monthCounts[month] = new ReadOnlyIntegerWrapper(this, "month" + month);
+        }
+    }
+
+    /**
+     * Returns the number of persons born in the month, 0 for January.
+     */
+    public int getMonthCount(int month) {
+        return monthCounts[month].get();
+    }
+
+    public ReadOnlyIntegerProperty monthCountProperty(int month) {
+        return monthCounts[month].getReadOnlyProperty();
+    }
+
+    /**
+     * Returns the number of persons born on the day of the year, 0 for January 1st. Days are counted as in
+     * a leap year, so a date has the same day in every year: February 29th is 59, March 1st always 60.
+     */
+    public int getDayOfYearCount(int dayOfYear) {
+        return dayOfYearCounts[dayOfYear];
+    }
+
+    public void add(LocalDate birthday) {
+        int[] monthDeltas = new int[MONTHS];
+        count(birthday, 1, monthDeltas);
+        applyMonthDeltas(monthDeltas);
+    }
+
+    public void remove(LocalDate birthday) {
+        int[] monthDeltas = new int[MONTHS];
+        count(birthday, -1, monthDeltas);
+        applyMonthDeltas(monthDeltas);
+    }
+
+    /**
+     * Counts the day right away and the month into the deltas, see {@link #applyMonthDeltas}.
+     */
+    private void count(LocalDate birthday, int delta, int[] monthDeltas) {
+        if (birthday == null) {
+            return;
+        }
+        monthDeltas[birthday.getMonthValue() - 1] += delta;
+        dayOfYearCounts[dayOfYear(birthday)] += delta;
+    }
+
+    /**
+     * Sets every month count that changed, once.
+     */
+    private void applyMonthDeltas(int[] monthDeltas) {
+        for (int month = 0; month < MONTHS; month++) {
+            if (monthDeltas[month] != 0) {
+                monthCounts[month].set(monthCounts[month].get() + monthDeltas[month]);
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the date in {@link #dayOfYearCounts}, see {@link #getDayOfYearCount}.
+     */
+    static int dayOfYear(LocalDate date) {
+        return date.getMonth().firstDayOfYear(true) + date.getDayOfMonth() - 2;
+    }
+
+    @Override
+    public void personsAdded(List<? extends Person> persons) {
+        int[] monthDeltas = new int[MONTHS];
+        for (Person person : persons) {
+            count(person.getBirthday(), 1, monthDeltas);
+        }
+        applyMonthDeltas(monthDeltas);
+    }
+
+    @Override
+    public void personsRemoved(List<? extends Person> persons) {
+        int[] monthDeltas = new int[MONTHS];
+        for (Person person : persons) {
+            count(person.getBirthday(), -1, monthDeltas);
+        }
+        applyMonthDeltas(monthDeltas);
+    }
+
+    @Override
+    public void personChanged(Person person, String propertyName, Object oldValue, Object newValue) {
+        if (Person.BIRTHDAY_PROPERTY.equals(propertyName)) {
+            int[] monthDeltas = new int[MONTHS];
+            count((LocalDate) oldValue, -1, monthDeltas);
+            count((LocalDate) newValue, 1, monthDeltas);
+            applyMonthDeltas(monthDeltas);
+        }
+    }
+}
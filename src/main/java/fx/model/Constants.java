@@ -4,4 +4,8 @@ public final class Constants {
     /* config.properties keys */
     public static final String DATA_IS_RANDOM = "data.isRandom";
     public static final String NUMBER_OF_RANDOM_DATA_RECORDS = "data.isRandom.number";
+    /* Необязательный seed для воспроизводимых случайных данных */
+    public static final String RANDOM_DATA_SEED = "data.isRandom.seed";
+    /* Интервал автосохранения в секундах, 0 отключает его */
+    public static final String AUTOSAVE_INTERVAL_SECONDS = "autosave.interval.seconds";
 }
@@ -0,0 +1,153 @@
+package fx.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * Finds persons whose values are exactly the same: first and last name, street, postal code, city
+ * and birthday. The id does not count, copies of a record usually have different ids.
+ * <p>
+ * The values of every person are hashed in parallel. The 32-bit hashes are packed together with
+ * the person's index into longs, which are sorted in parallel, so equal hashes end up next to each
+ * other without a hash map of boxed keys. Only persons with equal hashes are compared value by value.
+ * Memory is two longs per person.
+ * <p>
+ * The persons are only read. They must not be changed while the search runs.
+ */
+public final class DuplicateFinder {
+
+    private static final long INDEX_MASK = 0xFFFFFFFFL;
+
+    private DuplicateFinder() {
+    }
+
+    /**
+     * The groups of duplicates that were found.
+     */
+    public static final class Result {
+
+        private final List<List<Person>> groups;
+        private final int duplicateCount;
+        private final int searchedCount;
+        private final long elapsedNanos;
+
+        Result(List<List<Person>> groups, int searchedCount, long elapsedNanos) {
+            this.groups = groups;
+            int duplicates = 0;
+            for (List<Person> group : groups) {
+                duplicates += group.size() - 1;
+            }
+            this.duplicateCount = duplicates;
+            this.searchedCount = searchedCount;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Returns the groups ordered by their lowest id. Every group holds at least two persons, the one
+         * with the lowest id first.
+         */
+        public List<List<Person>> getGroups() {
+            return groups;
+        }
+
+        /**
+         * Returns the number of persons a merge would remove.
+         */
+        public int getDuplicateCount() {
+            return duplicateCount;
+        }
+
+        public int getSearchedCount() {
+            return searchedCount;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+    }
+
+    public static Result find(List<Person> persons) {
+        long start = System.nanoTime();
+        Person[] array = persons.toArray(new Person[0]);
+        int size = array.length;
+
+        long[] keys = new long[size];
+        IntStream.range(0, size).parallel().forEach(i -> keys[i] = (long) valueHash(array[i]) << 32 | i);
+        Arrays.parallelSort(keys);
+
+        List<List<Person>> groups = new ArrayList<>();
+        int runStart = 0;
+        for (int i = 1; i <= size; i++) {
+            if (i == size || (int) (keys[i] >>> 32) != (int) (keys[runStart] >>> 32)) {
+                if (i - runStart > 1) {
+                    groupRun(array, keys, runStart, i, groups);
+                }
+                runStart = i;
+            }
+        }
+        groups.sort(Comparator.comparingInt(group -> group.get(0).getId()));
+        return new Result(groups, size, System.nanoTime() - start);
+    }
+
+    /**
+     * Splits persons with the same hash into groups of equal values; different values with the same hash
+     * are rare, so the quadratic comparison only ever sees a few persons.
+     */
+    private static void groupRun(Person[] persons, long[] keys, int from, int to, List<List<Person>> groups) {
+        List<Person> remaining = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            remaining.add(persons[(int) (keys[i] & INDEX_MASK)]);
+        }
+        while (remaining.size() > 1) {
+            Person first = remaining.get(0);
+            List<Person> group = new ArrayList<>();
+            List<Person> rest = new ArrayList<>();
+            for (Person person : remaining) {
+                (sameValues(first, person) ? group : rest).add(person);
+            }
+            if (group.size() > 1) {
+                // Stable, so of several persons with the lowest id the first in the list is kept.
+                group.sort(Comparator.comparingInt(Person::getId));
+                groups.add(Collections.unmodifiableList(group));
+            }
+            remaining = rest;
+        }
+    }
+
+    /**
+     * Returns true if the persons have the same values, ignoring the id.
+     */
+    public static boolean sameValues(Person a, Person b) {
+        return a.getPostalCode() == b.getPostalCode()
+                && Objects.equals(a.getFirstName(), b.getFirstName())
+                && Objects.equals(a.getLastName(), b.getLastName())
+                && Objects.equals(a.getStreet(), b.getStreet())
+                && Objects.equals(a.getCity(), b.getCity())
+                && Objects.equals(a.getBirthday(), b.getBirthday());
+    }
+
+    /**
+     * Hash of the values compared by {@link #sameValues}. String hash codes are cached by the strings,
+     * so this reads little more than the fields.
+     */
+    static int valueHash(Person person) {
+        long hash = Objects.hashCode(person.getFirstName());
+        hash = hash * 31 + Objects.hashCode(person.getLastName());
+        hash = hash * 31 + Objects.hashCode(person.getStreet());
+        hash = hash * 31 + person.getPostalCode();
+        hash = hash * 31 + Objects.hashCode(person.getCity());
+        hash = hash * 31 + Objects.hashCode(person.getBirthday());
+        // Finalizer of MurmurHash3, spreads the bits of the combined hash codes.
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (int) hash;
+    }
+}
@@ -0,0 +1,46 @@
+package fx.model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out person ids. Lock-free and safe for any number of threads; parallel generators reserve a
+ * whole block of consecutive ids with one call instead of one id per person.
+ */
+public final class IdAllocator {
+
+    private static final AtomicInteger nextId = new AtomicInteger();
+
+    private IdAllocator() {
+    }
+
+    /**
+     * Returns a new id.
+     */
+    public static int next() {
+        return reserve(1);
+    }
+
+    /**
+     * Reserves a block of count consecutive ids and returns the first of them.
+     */
+    public static int reserve(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Negative id count: " + count);
+        }
+        int firstId = nextId.getAndAdd(count);
+        if (firstId < 0 || firstId + count < 0) {
+            throw new IllegalStateException("Person ids exhausted");
+        }
+        return firstId;
+    }
+
+    /**
+     * Makes sure that ids handed out from now on are greater than the given one, e.g. one read from a file.
+     */
+    public static void ensureAbove(int id) {
+        if (id == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Person ids exhausted");
+        }
+        nextId.accumulateAndGet(id + 1, Math::max);
+    }
+}
@@ -4,53 +4,82 @@ import javafx.beans.property.*;
 import util.XmlDateAdapter;
 
 import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
-import java.io.File;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
 import java.util.*;
 
 public class Person {
 
-    private static final Random RANDOM = new Random();
-    private static final String DATE_DELIMITER = ".";
-    public static final SimpleDateFormat DATE_FORMATTER = new SimpleDateFormat(String.format("dd%1$sMM%1$syyyy", DATE_DELIMITER));
-
-    private static final String FIRST_NAMES_FILE_PATH = "src/main/resources/FirstNames";
-    private static final String LAST_NAMES_FILE_PATH = "src/main/resources/LastNames";
-    private static List<String> firstNames;
-    private static List<String> lastNames;
-
-    private static int idCounter = 0;
-    private final IntegerProperty id;
-    private final StringProperty firstName;
-    private final StringProperty lastName;
-    private final StringProperty street;
-    private final IntegerProperty postalCode;
-    private final StringProperty city;
-    private final ObjectProperty<Date> birthday;
+    // Какие-то фиктивные начальные данные для удобства тестирования.
+    static final String DEFAULT_STREET = "какая-то улица";
+    static final int DEFAULT_POSTAL_CODE = 123456;
+    static final String DEFAULT_CITY = "какой-то город";
+
+    /* Имена свойств для PersonChangeListener */
+    public static final String ID_PROPERTY = "id";
+    public static final String FIRST_NAME_PROPERTY = "firstName";
+    public static final String LAST_NAME_PROPERTY = "lastName";
+    public static final String STREET_PROPERTY = "street";
+    public static final String POSTAL_CODE_PROPERTY = "postalCode";
+    public static final String CITY_PROPERTY = "city";
+    public static final String BIRTHDAY_PROPERTY = "birthday";
+
+    /*
+     * Значения хранятся в простых полях, а JavaFX-свойства создаются только при первом вызове
+     * xxxProperty(). Таблица запрашивает свойства лишь у видимых строк, поэтому у большинства
+     * записей их нет вовсе.
+     *
+     * Оценка для 64-битной JVM со сжатыми указателями: Simple*Property занимает 40 байт,
+     * раньше каждая запись стоила 40 (Person) + 7 * 40 = 320 байт без учёта строк,
+     * теперь 72 байта плюс 40 байт за каждое созданное свойство.
+     */
+    private int id;
+    private String firstName;
+    private String lastName;
+    private String street;
+    private int postalCode;
+    private String city;
+    private LocalDate birthday;
+
+    private IntegerProperty idProperty;
+    private StringProperty firstNameProperty;
+    private StringProperty lastNameProperty;
+    private StringProperty streetProperty;
+    private IntegerProperty postalCodeProperty;
+    private StringProperty cityProperty;
+    private ObjectProperty<LocalDate> birthdayProperty;
+
+    /* Назначается PersonChangeTracker, пока запись находится в отслеживаемом списке */
+    private PersonChangeListener changeListener;
 
     public Person() {
         this(null, null);
     }
 
     public Person(String firstName, String lastName) {
-        this.id = new SimpleIntegerProperty(idCounter++);
-        this.firstName = new SimpleStringProperty(firstName);
-        this.lastName = new SimpleStringProperty(lastName);
-
-        // Какие-то фиктивные начальные данные для удобства тестирования.
-        this.street = new SimpleStringProperty("какая-то улица");
-        this.postalCode = new SimpleIntegerProperty(123456);
-        this.city = new SimpleStringProperty("какой-то город");
-        Date birthday = null;
-        try {
-            birthday = generateRandomBirthday();
-        } catch (ParseException e) {
-            e.printStackTrace();
-        }
-        this.birthday = new SimpleObjectProperty<>(birthday);
+        this(IdAllocator.next(), firstName, lastName, DEFAULT_STREET, DEFAULT_POSTAL_CODE, DEFAULT_CITY,
+                RandomPersonGenerator.randomBirthday());
+    }
+
+    /**
+     * Создаёт Person с уже известными данными (например, прочитанными из файла).
+     * Счётчик id не используется, случайные данные не генерируются.
+     */
+    public Person(int id, String firstName, String lastName, String street, int postalCode, String city, LocalDate birthday) {
+        this.id = id;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.street = street;
+        this.postalCode = postalCode;
+        this.city = city;
+        this.birthday = birthday;
+    }
+
+    /**
+     * Создаёт копию с теми же данными, не связанную ни с каким списком. Её можно редактировать, пока
+     * оригинал читается в фоновом потоке.
+     */
+    public Person copy() {
+        return new Person(id, firstName, lastName, street, postalCode, city, birthday);
     }
 
     /**
@@ -59,158 +88,236 @@ public class Person {
      * @param number количество требуемых людей
      */
     public static List<Person> generateRandomPersons(int number) {
-        List<Person> personList = new ArrayList<>();
-        try {
-            initNamesLists();
-            for (int i = 0; i < number; i++) {
-                String firstName = firstNames.get(RANDOM.nextInt(firstNames.size()));
-                String lastName = lastNames.get(RANDOM.nextInt(lastNames.size()));
-                Person person = new Person(firstName, lastName);
-                personList.add(person);
-            }
-        } catch (IOException e) {
-            System.err.println(">>> Files with names reading error");
-            e.printStackTrace();
-        }
-        return personList;
+        return new RandomPersonGenerator().generate(number);
     }
 
     /**
-     * Загружает файлы имён и фамилий в списки
+     * Создаёт воспроизводимый список случайных людей: при одном и том же seed имена и дни рождения совпадают
+     *
+     * @param number количество требуемых людей
+     * @param seed   начальное значение генератора
      */
-    private static void initNamesLists() throws IOException {
-        File firstNamesFile = new File(FIRST_NAMES_FILE_PATH);
-        firstNames = Files.readAllLines(firstNamesFile.toPath());
-        System.out.println(FIRST_NAMES_FILE_PATH + " - " + firstNames.size() + " names found");
-        File lastNamesFile = new File(LAST_NAMES_FILE_PATH);
-        lastNames = Files.readAllLines(lastNamesFile.toPath());
-        System.out.println(LAST_NAMES_FILE_PATH + " - " + lastNames.size() + " names found");
-    }
-
-    private Date generateRandomBirthday() throws ParseException {
-        int month = RANDOM.nextInt(12) + 1;
-        String monthString = month < 10 ? "0" + month : String.valueOf(month);
-        int day;
-        /* Если февраль */
-        if (month == 2) {
-            day = RANDOM.nextInt(28) + 1;
-        } else {
-            day = RANDOM.nextInt(30) + 1;
-        }
-        String dayString = day < 10 ? "0" + day : String.valueOf(day);
-        int year = 1950 + RANDOM.nextInt(70);
-        return DATE_FORMATTER.parse(dayString + DATE_DELIMITER + monthString + DATE_DELIMITER + year);
+    public static List<Person> generateRandomPersons(int number, long seed) {
+        return new RandomPersonGenerator(seed).generate(number);
     }
 
     public int getId() {
-        return id.get();
+        return id;
     }
 
     public IntegerProperty idProperty() {
-        return id;
+        if (idProperty == null) {
+            idProperty = new SimpleIntegerProperty(this, ID_PROPERTY, id) {
+                @Override
+                protected void invalidated() {
+                    int oldValue = id;
+                    id = get();
+                    fireChanged(ID_PROPERTY, oldValue, id);
+                }
+            };
+        }
+        return idProperty;
     }
 
     public void setId(int id) {
-        this.id.set(id);
+        if (idProperty != null) {
+            idProperty.set(id);
+        } else {
+            int oldValue = this.id;
+            this.id = id;
+            fireChanged(ID_PROPERTY, oldValue, id);
+        }
     }
 
     public String getFirstName() {
-        return firstName.get();
+        return firstName;
     }
 
     public StringProperty firstNameProperty() {
-        return firstName;
+        if (firstNameProperty == null) {
+            firstNameProperty = new SimpleStringProperty(this, FIRST_NAME_PROPERTY, firstName) {
+                @Override
+                protected void invalidated() {
+                    String oldValue = firstName;
+                    firstName = get();
+                    fireChanged(FIRST_NAME_PROPERTY, oldValue, firstName);
+                }
+            };
+        }
+        return firstNameProperty;
     }
 
     public void setFirstName(String firstName) {
-        this.firstName.set(firstName);
+        if (firstNameProperty != null) {
+            firstNameProperty.set(firstName);
+        } else {
+            String oldValue = this.firstName;
+            this.firstName = firstName;
+            fireChanged(FIRST_NAME_PROPERTY, oldValue, firstName);
+        }
     }
 
     public String getLastName() {
-        return lastName.get();
+        return lastName;
     }
 
     public StringProperty lastNameProperty() {
-        return lastName;
+        if (lastNameProperty == null) {
+            lastNameProperty = new SimpleStringProperty(this, LAST_NAME_PROPERTY, lastName) {
+                @Override
+                protected void invalidated() {
+                    String oldValue = lastName;
+                    lastName = get();
+                    fireChanged(LAST_NAME_PROPERTY, oldValue, lastName);
+                }
+            };
+        }
+        return lastNameProperty;
     }
 
     public void setLastName(String lastName) {
-        this.lastName.set(lastName);
+        if (lastNameProperty != null) {
+            lastNameProperty.set(lastName);
+        } else {
+            String oldValue = this.lastName;
+            this.lastName = lastName;
+            fireChanged(LAST_NAME_PROPERTY, oldValue, lastName);
+        }
     }
 
     public String getStreet() {
-        return street.get();
+        return street;
     }
 
     public StringProperty streetProperty() {
-        return street;
+        if (streetProperty == null) {
+            streetProperty = new SimpleStringProperty(this, STREET_PROPERTY, street) {
+                @Override
+                protected void invalidated() {
+                    String oldValue = street;
+                    street = get();
+                    fireChanged(STREET_PROPERTY, oldValue, street);
+                }
+            };
+        }
+        return streetProperty;
     }
 
     public void setStreet(String street) {
-        this.street.set(street);
+        if (streetProperty != null) {
+            streetProperty.set(street);
+        } else {
+            String oldValue = this.street;
+            this.street = street;
+            fireChanged(STREET_PROPERTY, oldValue, street);
+        }
     }
 
     public int getPostalCode() {
-        return postalCode.get();
+        return postalCode;
     }
 
     public IntegerProperty postalCodeProperty() {
-        return postalCode;
+        if (postalCodeProperty == null) {
+            postalCodeProperty = new SimpleIntegerProperty(this, POSTAL_CODE_PROPERTY, postalCode) {
+                @Override
+                protected void invalidated() {
+                    int oldValue = postalCode;
+                    postalCode = get();
+                    fireChanged(POSTAL_CODE_PROPERTY, oldValue, postalCode);
+                }
+            };
+        }
+        return postalCodeProperty;
     }
 
     public void setPostalCode(int postalCode) {
-        this.postalCode.set(postalCode);
+        if (postalCodeProperty != null) {
+            postalCodeProperty.set(postalCode);
+        } else {
+            int oldValue = this.postalCode;
+            this.postalCode = postalCode;
+            fireChanged(POSTAL_CODE_PROPERTY, oldValue, postalCode);
+        }
     }
 
     public String getCity() {
-        return city.get();
+        return city;
     }
 
     public StringProperty cityProperty() {
-        return city;
+        if (cityProperty == null) {
+            cityProperty = new SimpleStringProperty(this, CITY_PROPERTY, city) {
+                @Override
+                protected void invalidated() {
+                    String oldValue = city;
+                    city = get();
+                    fireChanged(CITY_PROPERTY, oldValue, city);
+                }
+            };
+        }
+        return cityProperty;
     }
 
     public void setCity(String city) {
-        this.city.set(city);
+        if (cityProperty != null) {
+            cityProperty.set(city);
+        } else {
+            String oldValue = this.city;
+            this.city = city;
+            fireChanged(CITY_PROPERTY, oldValue, city);
+        }
     }
 
     @XmlJavaTypeAdapter(XmlDateAdapter.class)
-    public Date getBirthday() {
-        return birthday.get();
+    public LocalDate getBirthday() {
+        return birthday;
     }
 
-    public ObjectProperty<Date> birthdayProperty() {
-        return birthday;
+    public ObjectProperty<LocalDate> birthdayProperty() {
+        if (birthdayProperty == null) {
+            birthdayProperty = new SimpleObjectProperty<LocalDate>(this, BIRTHDAY_PROPERTY, birthday) {
+                @Override
+                protected void invalidated() {
+                    LocalDate oldValue = birthday;
+                    birthday = get();
+                    fireChanged(BIRTHDAY_PROPERTY, oldValue, birthday);
+                }
+            };
+        }
+        return birthdayProperty;
     }
 
-    public void setBirthday(Date birthday) {
-        this.birthday.set(birthday);
+    public void setBirthday(LocalDate birthday) {
+        if (birthdayProperty != null) {
+            birthdayProperty.set(birthday);
+        } else {
+            LocalDate oldValue = this.birthday;
+            this.birthday = birthday;
+            fireChanged(BIRTHDAY_PROPERTY, oldValue, birthday);
+        }
     }
 
-    @Override
-    public String toString() {
-        return "Person{" +
-                "id=" + id.get() +
-                ", firstName=" + firstName.get() +
-                ", lastName=" + lastName.get() +
-                '}';
+    PersonChangeListener getChangeListener() {
+        return changeListener;
     }
 
-    @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (!(o instanceof Person)) return false;
-        Person person = (Person) o;
-        return Objects.equals(firstName, person.firstName) &&
-                Objects.equals(lastName, person.lastName) &&
-                Objects.equals(street, person.street) &&
-                Objects.equals(postalCode, person.postalCode) &&
-                Objects.equals(city, person.city) &&
-                Objects.equals(birthday, person.birthday);
+    void setChangeListener(PersonChangeListener changeListener) {
+        this.changeListener = changeListener;
+    }
+
+    private void fireChanged(String propertyName, Object oldValue, Object newValue) {
+        if (changeListener != null && !Objects.equals(oldValue, newValue)) {
+            changeListener.personChanged(this, propertyName, oldValue, newValue);
+        }
     }
 
     @Override
-    public int hashCode() {
-        return Objects.hash(firstName, lastName, street, postalCode, city, birthday);
+    public String toString() {
+        return "Person{" +
+                "id=" + id +
+                ", firstName=" + firstName +
+                ", lastName=" + lastName +
+                '}';
     }
 }
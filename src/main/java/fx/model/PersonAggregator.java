@@ -0,0 +1,142 @@
+package fx.model;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Computes all {@link PersonStatistics} in one parallel pass over the persons.
+ * <p>
+ * The list is split in halves on the common fork-join pool until a part has at most {@link #CHUNK_SIZE}
+ * persons. Every part counts into its own accumulator: plain {@code int[]} arrays indexed by age band and
+ * postal code prefix, and {@link StringCounts} for cities and last names. The accumulators of two halves
+ * are merged when both are done, so no counter is shared between threads.
+ * <p>
+ * The persons are only read. They must not be changed while the aggregation runs.
+ */
+public final class PersonAggregator {
+
+    /* Столько записей считает одна задача, не деля их дальше */
+    static final int CHUNK_SIZE = 16 * 1024;
+    /* Сколько самых частых городов и фамилий возвращается */
+    public static final int TOP_COUNT = 20;
+    /* Отделяет от пятизначного индекса всё, кроме первых двух цифр */
+    private static final int POSTAL_PREFIX_DIVISOR = (PersonStatistics.MAX_POSTAL_CODE + 1) / PersonStatistics.POSTAL_PREFIXES;
+
+    private PersonAggregator() {
+    }
+
+    /**
+     * @param persons snapshot of the persons; should allow fast random access
+     * @param today   the day the ages are computed for
+     */
+    public static PersonStatistics aggregate(List<Person> persons, LocalDate today) {
+        long start = System.nanoTime();
+        Accumulator total = persons.isEmpty()
+                ? new Accumulator(today)
+                : ForkJoinPool.commonPool().invoke(new AggregateTask(persons, today, 0, persons.size()));
+        return new PersonStatistics(persons.size(), total.ageBandCounts, total.noBirthdayCount, total.postalPrefixCounts,
+                total.longPostalCodeCount, total.cities.size(), total.cities.top(TOP_COUNT),
+                total.lastNames.size(), total.lastNames.top(TOP_COUNT),
+                System.nanoTime() - start);
+    }
+
+    /**
+     * Aggregates the persons of the range, split in halves while it is larger than a chunk.
+     */
+    private static final class AggregateTask extends RecursiveTask<Accumulator> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<Person> persons;
+        private final LocalDate today;
+        private final int from;
+        private final int to;
+
+        AggregateTask(List<Person> persons, LocalDate today, int from, int to) {
+            this.persons = persons;
+            this.today = today;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Accumulator compute() {
+            if (to - from <= CHUNK_SIZE) {
+                Accumulator accumulator = new Accumulator(today);
+                for (int i = from; i < to; i++) {
+                    accumulator.add(persons.get(i));
+                }
+                return accumulator;
+            }
+            int middle = (from + to) >>> 1;
+            AggregateTask left = new AggregateTask(persons, today, from, middle);
+            left.fork();
+            Accumulator right = new AggregateTask(persons, today, middle, to).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    /**
+     * Counts of one part of the list.
+     */
+    private static final class Accumulator {
+
+        private final int todayYear;
+        /* Месяц и день сегодняшней даты одним числом, чтобы сравнивать дни рождения без LocalDate */
+        private final int todayMonthDay;
+        final int[] ageBandCounts = new int[PersonStatistics.AGE_BANDS];
+        int noBirthdayCount;
+        final int[] postalPrefixCounts = new int[PersonStatistics.POSTAL_PREFIXES];
+        int longPostalCodeCount;
+        final StringCounts cities = new StringCounts();
+        final StringCounts lastNames = new StringCounts();
+
+        Accumulator(LocalDate today) {
+            this.todayYear = today.getYear();
+            this.todayMonthDay = monthDay(today);
+        }
+
+        private static int monthDay(LocalDate date) {
+            return date.getMonthValue() * 32 + date.getDayOfMonth();
+        }
+
+        void add(Person person) {
+            LocalDate birthday = person.getBirthday();
+            if (birthday == null) {
+                noBirthdayCount++;
+            } else {
+                int age = todayYear - birthday.getYear() - (monthDay(birthday) > todayMonthDay ? 1 : 0);
+                // Birthdays in the future count as age 0.
+                ageBandCounts[Math.min(Math.max(age, 0) / PersonStatistics.AGE_BAND_YEARS, PersonStatistics.AGE_BANDS - 1)]++;
+            }
+            int postalCode = person.getPostalCode();
+            if (postalCode > PersonStatistics.MAX_POSTAL_CODE) {
+                longPostalCodeCount++;
+            } else if (postalCode > 0) {
+                // The first two of five digits, so 01067 (read as 1067) counts for 01, not 10.
+                postalPrefixCounts[postalCode / POSTAL_PREFIX_DIVISOR]++;
+            }
+            cities.add(person.getCity(), 1);
+            lastNames.add(person.getLastName(), 1);
+        }
+
+        /**
+         * Adds the counts of the other accumulator to this one and returns this one.
+         */
+        Accumulator merge(Accumulator other) {
+            for (int i = 0; i < ageBandCounts.length; i++) {
+                ageBandCounts[i] += other.ageBandCounts[i];
+            }
+            noBirthdayCount += other.noBirthdayCount;
+            longPostalCodeCount += other.longPostalCodeCount;
+            for (int i = 0; i < postalPrefixCounts.length; i++) {
+                postalPrefixCounts[i] += other.postalPrefixCounts[i];
+            }
+            cities.addAll(other.cities);
+            lastNames.addAll(other.lastNames);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package fx.model;
+
+/**
+ * Receives changes of the values of a {@link Person}, whether made through a setter or a property.
+ */
+@FunctionalInterface
+public interface PersonChangeListener {
+
+    /**
+     * @param propertyName one of the {@code Person.XXX_PROPERTY} names
+     */
+    void personChanged(Person person, String propertyName, Object oldValue, Object newValue);
+}
@@ -0,0 +1,99 @@
+package fx.model;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reports every change of a person list to its listeners: persons added to and removed from the list
+ * as well as changes of the values of the persons in it.
+ * <p>
+ * Value changes are received through the single {@link PersonChangeListener} slot of every person in
+ * the list rather than through listeners on its JavaFX properties, so tracking a person costs no memory
+ * and does not create its lazy properties. Everything happens on the thread that changes the list,
+ * which is the FX application thread in the app.
+ */
+public class PersonChangeTracker implements PersonChangeListener {
+
+    /**
+     * Receives the changes of the tracked list. All methods do nothing by default.
+     */
+    public interface Listener {
+
+        default void personsAdded(List<? extends Person> persons) {
+        }
+
+        default void personsRemoved(List<? extends Person> persons) {
+        }
+
+        default void personChanged(Person person, String propertyName, Object oldValue, Object newValue) {
+        }
+    }
+
+    private final ObservableList<Person> persons;
+    private final List<Listener> listeners = new ArrayList<>();
+
+    public PersonChangeTracker(ObservableList<Person> persons) {
+        this.persons = persons;
+        for (Person person : persons) {
+            person.setChangeListener(this);
+        }
+        persons.addListener(this::onListChanged);
+    }
+
+    public ObservableList<Person> getPersons() {
+        return persons;
+    }
+
+    /**
+     * Adds the listener and reports the current content of the list to it as added.
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+        if (!persons.isEmpty()) {
+            listener.personsAdded(persons);
+        }
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void onListChanged(ListChangeListener.Change<? extends Person> change) {
+        while (change.next()) {
+            if (change.wasPermutated() || change.wasUpdated()) {
+                // Same persons, other order.
+                continue;
+            }
+            if (change.wasRemoved()) {
+                List<? extends Person> removed = change.getRemoved();
+                for (Person person : removed) {
+                    if (person.getChangeListener() == this) {
+                        person.setChangeListener(null);
+                    }
+                }
+                for (Listener listener : listeners) {
+                    listener.personsRemoved(removed);
+                }
+            }
+            if (change.wasAdded()) {
+                List<? extends Person> added = change.getAddedSubList();
+                for (Person person : added) {
+                    person.setChangeListener(this);
+                }
+                for (Listener listener : listeners) {
+                    listener.personsAdded(added);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void personChanged(Person person, String propertyName, Object oldValue, Object newValue) {
+        for (Listener listener : listeners) {
+            listener.personChanged(person, propertyName, oldValue, newValue);
+        }
+    }
+}
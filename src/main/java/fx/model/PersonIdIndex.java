@@ -0,0 +1,161 @@
+package fx.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds the persons of a list by id in constant time. Kept up to date by a {@link PersonChangeTracker}
+ * and used on the FX application thread only.
+ * <p>
+ * An open-addressing hash table with linear probing over an {@code int[]} of ids and a parallel array
+ * of persons, so there are no {@code Integer} keys and no entry objects. An empty slot is one without
+ * a person. Ids should be unique; of several persons with the same id the index finds the one added last.
+ */
+public class PersonIdIndex implements PersonChangeTracker.Listener {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    /* Таблица увеличивается вдвое, когда заполнена больше чем на 3/4 */
+    private static final int MAX_LOAD_PERCENT = 75;
+
+    private int[] ids;
+    private Person[] persons;
+    private int size;
+    /* 32 - log2(ёмкость), для фибоначчиева хеширования */
+    private int shift;
+
+    public PersonIdIndex() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the person with the id, or null if there is none.
+     */
+    public Person get(int id) {
+        int mask = ids.length - 1;
+        for (int slot = slot(id); persons[slot] != null; slot = (slot + 1) & mask) {
+            if (ids[slot] == id) {
+                return persons[slot];
+            }
+        }
+        return null;
+    }
+
+    public boolean contains(int id) {
+        return get(id) != null;
+    }
+
+    @Override
+    public void personsAdded(List<? extends Person> added) {
+        ensureCapacity(size + added.size());
+        for (Person person : added) {
+            put(person.getId(), person);
+        }
+    }
+
+    @Override
+    public void personsRemoved(List<? extends Person> removed) {
+        for (Person person : removed) {
+            remove(person.getId(), person);
+        }
+    }
+
+    @Override
+    public void personChanged(Person person, String propertyName, Object oldValue, Object newValue) {
+        if (Person.ID_PROPERTY.equals(propertyName)) {
+            remove((Integer) oldValue, person);
+            ensureCapacity(size + 1);
+            put(person.getId(), person);
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(persons, null);
+        size = 0;
+    }
+
+    private void put(int id, Person person) {
+        int mask = ids.length - 1;
+        int slot = slot(id);
+        while (persons[slot] != null) {
+            if (ids[slot] == id) {
+                persons[slot] = person;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        ids[slot] = id;
+        persons[slot] = person;
+        size++;
+    }
+
+    /**
+     * Removes the id if it belongs to the person; another person with the same id stays.
+     */
+    private void remove(int id, Person person) {
+        int mask = ids.length - 1;
+        int slot = slot(id);
+        while (persons[slot] != null) {
+            if (ids[slot] == id) {
+                if (persons[slot] == person) {
+                    deleteSlot(slot);
+                }
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Empties the slot and moves later entries of the probe sequence back, so lookups need no tombstones.
+     */
+    private void deleteSlot(int slot) {
+        int mask = ids.length - 1;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (persons[next] != null) {
+            int home = slot(ids[next]);
+            // The entry may fill the gap if the gap lies between its home slot and its current slot.
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                ids[gap] = ids[next];
+                persons[gap] = persons[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        persons[gap] = null;
+        size--;
+    }
+
+    private int slot(int id) {
+        return (id * 0x9E3779B9) >>> shift;
+    }
+
+    private void ensureCapacity(int expectedSize) {
+        if ((long) expectedSize * 100 <= (long) ids.length * MAX_LOAD_PERCENT) {
+            return;
+        }
+        int capacity = ids.length;
+        while ((long) expectedSize * 100 > (long) capacity * MAX_LOAD_PERCENT) {
+            capacity <<= 1;
+        }
+        int[] oldIds = ids;
+        Person[] oldPersons = persons;
+        allocate(capacity);
+        size = 0;
+        for (int i = 0; i < oldPersons.length; i++) {
+            if (oldPersons[i] != null) {
+                put(oldIds[i], oldPersons[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        ids = new int[capacity];
+        persons = new Person[capacity];
+        shift = Integer.numberOfLeadingZeros(capacity) + 1;
+    }
+}
@@ -0,0 +1,187 @@
+package fx.model;
+
+import javafx.collections.ModifiableObservableListBase;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Observable list of persons whose bulk operations cost one pass over the list and fire one change.
+ * <p>
+ * The list of {@code FXCollections.observableArrayList()} removes the elements of {@code removeAll} one by
+ * one, shifting the rest of the array every time, and {@code replaceAll} fires a change per element. Here
+ * {@link #removeAll}, {@link #retainAll} and {@link #removeIf} compact the array in place, ranges and
+ * added collections are copied at once, and {@link #replaceAll} sets all elements in one change. The
+ * listeners (table, indexes, change log) get one change with a sub-change per removed range or replaced
+ * element. Membership is tested with {@code contains} of the given collection, so pass a set for large
+ * removals.
+ */
+public class PersonList extends ModifiableObservableListBase<Person> {
+
+    private final ArrayList<Person> elements = new ArrayList<>();
+
+    @Override
+    public Person get(int index) {
+        return elements.get(index);
+    }
+
+    @Override
+    public int size() {
+        return elements.size();
+    }
+
+    @Override
+    protected void doAdd(int index, Person element) {
+        elements.add(index, element);
+    }
+
+    @Override
+    protected Person doSet(int index, Person element) {
+        return elements.set(index, element);
+    }
+
+    @Override
+    protected Person doRemove(int index) {
+        return elements.remove(index);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Person> c) {
+        return addAll(elements.size(), c);
+    }
+
+    /**
+     * Inserts all persons with one copy of the array, instead of shifting the tail once per person.
+     */
+    @Override
+    public boolean addAll(int index, Collection<? extends Person> c) {
+        if (index < 0 || index > elements.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + elements.size());
+        }
+        int count = c.size();
+        if (count == 0) {
+            return false;
+        }
+        beginChange();
+        try {
+            elements.addAll(index, c);
+            nextAdd(index, index + count);
+            modCount++;
+        } finally {
+            endChange();
+        }
+        return true;
+    }
+
+    /**
+     * Removes the range at once; the base class removes its first element over and over, which makes
+     * {@code clear()} and {@code setAll()} quadratic.
+     */
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        List<Person> range = elements.subList(fromIndex, toIndex);
+        if (range.isEmpty()) {
+            return;
+        }
+        beginChange();
+        try {
+            nextRemove(fromIndex, new ArrayList<>(range));
+            range.clear();
+            modCount++;
+        } finally {
+            endChange();
+        }
+    }
+
+    @Override
+    public void remove(int from, int to) {
+        removeRange(from, to);
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        return removeIf(c::contains);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        return removeIf(person -> !c.contains(person));
+    }
+
+    /**
+     * Removes the matching persons in one pass. The filter is applied to every person once, before
+     * anything is removed, so a failing filter leaves the list unchanged.
+     */
+    @Override
+    public boolean removeIf(Predicate<? super Person> filter) {
+        Objects.requireNonNull(filter);
+        int size = elements.size();
+        BitSet removed = new BitSet(size);
+        for (int i = 0; i < size; i++) {
+            if (filter.test(elements.get(i))) {
+                removed.set(i);
+            }
+        }
+        if (removed.isEmpty()) {
+            return false;
+        }
+
+        beginChange();
+        try {
+            int kept = 0;
+            int from = 0;
+            while (from < size) {
+                int runStart = removed.nextSetBit(from);
+                int runEnd = runStart < 0 ? size : removed.nextClearBit(runStart);
+                int keptEnd = runStart < 0 ? size : runStart;
+                for (int i = from; i < keptEnd; i++) {
+                    elements.set(kept++, elements.get(i));
+                }
+                if (runStart < 0) {
+                    break;
+                }
+                // Sub-changes are reported as if the ranges were removed one after another, front to back.
+                nextRemove(kept, new ArrayList<>(elements.subList(runStart, runEnd)));
+                from = runEnd;
+            }
+            elements.subList(kept, size).clear();
+            modCount++;
+        } finally {
+            endChange();
+        }
+        return true;
+    }
+
+    /**
+     * Replaces every person by the result of the operator in one change; persons the operator returns
+     * unchanged are not reported.
+     */
+    @Override
+    public void replaceAll(UnaryOperator<Person> operator) {
+        Objects.requireNonNull(operator);
+        int size = elements.size();
+        List<Person> replacements = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            replacements.add(operator.apply(elements.get(i)));
+        }
+
+        beginChange();
+        try {
+            for (int i = 0; i < size; i++) {
+                Person replacement = replacements.get(i);
+                Person old = elements.get(i);
+                if (replacement != old) {
+                    elements.set(i, replacement);
+                    nextSet(i, old);
+                }
+            }
+        } finally {
+            endChange();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package fx.model;
+
+import java.util.List;
+
+/**
+ * Version of the content of a person list, counted up by every change reported by a {@link PersonChangeTracker}:
+ * persons added, removed or edited. Reordering the list does not count. Results computed from the list stay
+ * valid as long as the version is the same. Used on the FX application thread only.
+ */
+public class PersonListVersion implements PersonChangeTracker.Listener {
+
+    private long version;
+
+    public long get() {
+        return version;
+    }
+
+    @Override
+    public void personsAdded(List<? extends Person> persons) {
+        version++;
+    }
+
+    @Override
+    public void personsRemoved(List<? extends Person> persons) {
+        version++;
+    }
+
+    @Override
+    public void personChanged(Person person, String propertyName, Object oldValue, Object newValue) {
+        version++;
+    }
+}
@@ -0,0 +1,167 @@
+package fx.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * Prefix index over the first and last names of the persons in a list.
+ * <p>
+ * Names are kept lower-cased in sorted maps, every distinct name points to the persons carrying it.
+ * A prefix lookup is a range of the map, so its cost depends on the number of distinct names and
+ * matches, not on the size of the list. Kept up to date by a {@link PersonChangeTracker} and used on
+ * the FX application thread only.
+ */
+public class PersonNameIndex implements PersonChangeTracker.Listener {
+
+    /* Наибольший символ, все ключи с префиксом p лежат в [p, p + MAX_CHAR) */
+    private static final char MAX_CHAR = Character.MAX_VALUE;
+
+    private final NavigableMap<String, Set<Person>> firstNames = new TreeMap<>();
+    private final NavigableMap<String, Set<Person>> lastNames = new TreeMap<>();
+
+    /**
+     * Returns the persons whose first or last name starts with the prefix, ignoring case.
+     */
+    public Set<Person> findByNamePrefix(String prefix) {
+        String key = normalize(prefix);
+        Set<Person> result = newPersonSet();
+        collect(firstNames, key, result);
+        collect(lastNames, key, result);
+        return result;
+    }
+
+    /**
+     * Parses a search query. Every word of the query has to be the beginning of the first or the last
+     * name of a person.
+     *
+     * @return the query, or null for a query without words
+     */
+    public Query createQuery(String query) {
+        String[] words = query == null ? new String[0] : normalize(query).trim().split("\\s+");
+        if (words.length == 0 || words[0].isEmpty()) {
+            return null;
+        }
+        return new Query(words);
+    }
+
+    private void collect(NavigableMap<String, Set<Person>> names, String prefix, Set<Person> result) {
+        for (Set<Person> persons : names.subMap(prefix, true, prefix + MAX_CHAR, false).values()) {
+            result.addAll(persons);
+        }
+    }
+
+    @Override
+    public void personsAdded(List<? extends Person> persons) {
+        for (Person person : persons) {
+            add(firstNames, person.getFirstName(), person);
+            add(lastNames, person.getLastName(), person);
+        }
+    }
+
+    @Override
+    public void personsRemoved(List<? extends Person> persons) {
+        for (Person person : persons) {
+            remove(firstNames, person.getFirstName(), person);
+            remove(lastNames, person.getLastName(), person);
+        }
+    }
+
+    @Override
+    public void personChanged(Person person, String propertyName, Object oldValue, Object newValue) {
+        if (Person.FIRST_NAME_PROPERTY.equals(propertyName)) {
+            remove(firstNames, (String) oldValue, person);
+            add(firstNames, (String) newValue, person);
+        } else if (Person.LAST_NAME_PROPERTY.equals(propertyName)) {
+            remove(lastNames, (String) oldValue, person);
+            add(lastNames, (String) newValue, person);
+        }
+    }
+
+    private static void add(Map<String, Set<Person>> names, String name, Person person) {
+        if (name != null) {
+            names.computeIfAbsent(normalize(name), key -> newPersonSet()).add(person);
+        }
+    }
+
+    private static void remove(Map<String, Set<Person>> names, String name, Person person) {
+        if (name == null) {
+            return;
+        }
+        String key = normalize(name);
+        Set<Person> persons = names.get(key);
+        if (persons != null && persons.remove(person) && persons.isEmpty()) {
+            names.remove(key);
+        }
+    }
+
+    private static String normalize(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /* Person сравниваются по ссылке, IdentityHashMap к тому же компактнее HashSet */
+    private static Set<Person> newPersonSet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    /**
+     * A search query over the persons of the index.
+     */
+    public class Query implements Predicate<Person> {
+
+        private final String[] words;
+
+        Query(String[] words) {
+            this.words = words;
+        }
+
+        /**
+         * Looks up the matching persons in the index. The cost depends on the number of persons whose
+         * name starts with the first word, not on the size of the list.
+         */
+        public Set<Person> findMatches() {
+            // Candidates come from the index for the first word, the other words only narrow them down.
+            Set<Person> result = findByNamePrefix(words[0]);
+            if (words.length > 1) {
+                Collection<Person> candidates = new ArrayList<>(result);
+                result.clear();
+                for (Person person : candidates) {
+                    if (matchesWords(person, 1)) {
+                        result.add(person);
+                    }
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Compares the names of the person with the query, without the index; for persons that have just
+         * been added or changed.
+         */
+        @Override
+        public boolean test(Person person) {
+            return matchesWords(person, 0);
+        }
+
+        private boolean matchesWords(Person person, int from) {
+            for (int i = from; i < words.length; i++) {
+                if (!startsWith(person.getFirstName(), words[i]) && !startsWith(person.getLastName(), words[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean startsWith(String name, String prefix) {
+            return name != null && name.regionMatches(true, 0, prefix, 0, prefix.length());
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package fx.model;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Statistics of a list of persons computed by {@link PersonAggregator}: age bands, postal code prefixes and
+ * the most frequent cities and last names.
+ */
+public final class PersonStatistics {
+
+    /* Возрастные группы по 10 лет, последняя открыта сверху: 0-9, ..., 80-89, 90+ */
+    public static final int AGE_BAND_YEARS = 10;
+    public static final int AGE_BANDS = 10;
+    /* Почтовые индексы считаются пятизначными, с ведущими нулями, и группируются по первым двум цифрам */
+    public static final int POSTAL_CODE_DIGITS = 5;
+    public static final int MAX_POSTAL_CODE = 99_999;
+    public static final int POSTAL_PREFIXES = 100;
+
+    /**
+     * A string and how often it occurs.
+     */
+    public static final class Count {
+
+        /* По убыванию количества, при равенстве по алфавиту */
+        static final Comparator<Count> ORDER = Comparator.comparingInt(Count::getCount).reversed().thenComparing(Count::getKey);
+
+        private final String key;
+        private final int count;
+
+        Count(String key, int count) {
+            this.key = key;
+            this.count = count;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+
+    private final int personCount;
+    private final int[] ageBandCounts;
+    private final int noBirthdayCount;
+    private final int[] postalPrefixCounts;
+    private final int longPostalCodeCount;
+    private final int cityCount;
+    private final List<Count> topCities;
+    private final int lastNameCount;
+    private final List<Count> topLastNames;
+    private final long elapsedNanos;
+
+    PersonStatistics(int personCount, int[] ageBandCounts, int noBirthdayCount, int[] postalPrefixCounts,
+                     int longPostalCodeCount, int cityCount, List<Count> topCities, int lastNameCount, List<Count> topLastNames, long elapsedNanos) {
+        this.personCount = personCount;
+        this.ageBandCounts = ageBandCounts;
+        this.noBirthdayCount = noBirthdayCount;
+        this.postalPrefixCounts = postalPrefixCounts;
+        this.longPostalCodeCount = longPostalCodeCount;
+        this.cityCount = cityCount;
+        this.topCities = topCities;
+        this.lastNameCount = lastNameCount;
+        this.topLastNames = topLastNames;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getPersonCount() {
+        return personCount;
+    }
+
+    /**
+     * Returns the number of persons in the age band, 0 for 0 to 9 years. The last band counts everyone older.
+     */
+    public int getAgeBandCount(int band) {
+        return ageBandCounts[band];
+    }
+
+    /**
+     * Returns the name of the age band, like {@code "20-29"} or {@code "90+"}.
+     */
+    public static String getAgeBandName(int band) {
+        int from = band * AGE_BAND_YEARS;
+        return band == AGE_BANDS - 1 ? from + "+" : from + "-" + (from + AGE_BAND_YEARS - 1);
+    }
+
+    /**
+     * Returns the number of persons without a birthday, who are in no age band.
+     */
+    public int getNoBirthdayCount() {
+        return noBirthdayCount;
+    }
+
+    /**
+     * Returns the number of persons whose postal code, written with {@value #POSTAL_CODE_DIGITS} digits,
+     * starts with the prefix, 0 to 99: 1067 is 01067 and counts for prefix 1. Persons without a postal code
+     * (0 or less) are not counted, longer postal codes only by {@link #getLongPostalCodeCount()}.
+     */
+    public int getPostalPrefixCount(int prefix) {
+        return postalPrefixCounts[prefix];
+    }
+
+    /**
+     * Returns the name of the postal code prefix, with its leading zero, like {@code "01"}.
+     */
+    public static String getPostalPrefixName(int prefix) {
+        return prefix < 10 ? "0" + prefix : Integer.toString(prefix);
+    }
+
+    /**
+     * Returns the number of persons whose postal code has more than {@value #POSTAL_CODE_DIGITS} digits and
+     * therefore no prefix.
+     */
+    public int getLongPostalCodeCount() {
+        return longPostalCodeCount;
+    }
+
+    /**
+     * Returns the number of different cities.
+     */
+    public int getCityCount() {
+        return cityCount;
+    }
+
+    /**
+     * Returns the most frequent cities, most frequent first.
+     */
+    public List<Count> getTopCities() {
+        return topCities;
+    }
+
+    /**
+     * Returns the number of different last names.
+     */
+    public int getLastNameCount() {
+        return lastNameCount;
+    }
+
+    /**
+     * Returns the most frequent last names, most frequent first.
+     */
+    public List<Count> getTopLastNames() {
+        return topLastNames;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+}
@@ -0,0 +1,109 @@
+package fx.model;
+
+import fx.diagnostics.FlightEvents;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Generates random persons for tests and load experiments.
+ * <p>
+ * The name dictionaries are read from the classpath once per process. Persons are created in parallel
+ * in fixed-size chunks on the common fork-join pool; every chunk draws from its own
+ * {@link SplittableRandom}, split from the generator seed in chunk order. The same seed therefore gives
+ * the same dataset regardless of the number of threads. Birthdays are computed from a random epoch day,
+ * nothing is formatted or parsed.
+ */
+public class RandomPersonGenerator {
+
+    private static final String FIRST_NAMES_RESOURCE = "/FirstNames";
+    private static final String LAST_NAMES_RESOURCE = "/LastNames";
+
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    /* Дни рождения с 01.01.1950 по 31.12.2019 */
+    private static final int FIRST_BIRTHDAY = (int) LocalDate.of(1950, 1, 1).toEpochDay();
+    private static final int BIRTHDAY_DAYS = (int) LocalDate.of(2020, 1, 1).toEpochDay() - FIRST_BIRTHDAY;
+
+    private final long seed;
+
+    public RandomPersonGenerator() {
+        this(ThreadLocalRandom.current().nextLong());
+    }
+
+    public RandomPersonGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /* Словари имён загружаются при первом обращении (lazy holder idiom) */
+    private static final class Dictionaries {
+        private static final String[] FIRST_NAMES = readLines(FIRST_NAMES_RESOURCE);
+        private static final String[] LAST_NAMES = readLines(LAST_NAMES_RESOURCE);
+
+        private static String[] readLines(String resource) {
+            InputStream inputStream = RandomPersonGenerator.class.getResourceAsStream(resource);
+            if (inputStream == null) {
+                throw new IllegalStateException("Resource not found: " + resource);
+            }
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+                String[] lines = reader.lines().map(String::trim).filter(line -> !line.isEmpty()).toArray(String[]::new);
+                System.out.println(resource + " - " + lines.length + " names found");
+                return lines;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Creates the given number of random persons with consecutive new ids.
+     */
+    public List<Person> generate(int number) {
+        String[] firstNames = Dictionaries.FIRST_NAMES;
+        String[] lastNames = Dictionaries.LAST_NAMES;
+        int firstId = IdAllocator.reserve(number);
+        FlightEvents.Span event = FlightEvents.generate(number, ForkJoinPool.getCommonPoolParallelism());
+
+        int chunks = (number + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] chunkRandoms = new SplittableRandom[chunks];
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            chunkRandoms[chunk] = root.split();
+        }
+
+        Person[] persons = new Person[number];
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            SplittableRandom random = chunkRandoms[chunk];
+            int to = Math.min(number, (chunk + 1) * CHUNK_SIZE);
+            for (int i = chunk * CHUNK_SIZE; i < to; i++) {
+                persons[i] = new Person(firstId + i,
+                        firstNames[random.nextInt(firstNames.length)],
+                        lastNames[random.nextInt(lastNames.length)],
+                        Person.DEFAULT_STREET,
+                        Person.DEFAULT_POSTAL_CODE,
+                        Person.DEFAULT_CITY,
+                        LocalDate.ofEpochDay(FIRST_BIRTHDAY + random.nextInt(BIRTHDAY_DAYS)));
+            }
+        });
+        event.commit();
+        return new ArrayList<>(Arrays.asList(persons));
+    }
+
+    /**
+     * Returns a random birthday in the range used by the generator.
+     */
+    public static LocalDate randomBirthday() {
+        return LocalDate.ofEpochDay(FIRST_BIRTHDAY + ThreadLocalRandom.current().nextInt(BIRTHDAY_DAYS));
+    }
+}
@@ -0,0 +1,61 @@
+package fx.model;
+
+import fx.diagnostics.Counter;
+import fx.diagnostics.Metrics;
+
+import java.lang.ref.SoftReference;
+import java.time.LocalDate;
+
+/**
+ * Keeps the last {@link PersonStatistics}, so opening the statistics again on unchanged data does not
+ * aggregate the whole list again.
+ * <p>
+ * A result is valid for the {@link PersonListVersion} of the list it was computed from and for the day it
+ * was computed on, since the ages depend on it. All charts come from the same aggregation pass, so one
+ * entry serves every chart. Results of older versions are never asked for again and only the last one is
+ * kept. It is held by a {@link SoftReference}: the garbage collector drops it before memory runs out,
+ * and the next request computes it again. Used on the FX application thread only.
+ */
+public class StatisticsCache {
+
+    private SoftReference<Entry> last = new SoftReference<>(null);
+
+    private final Counter hits = Metrics.counter("statistics.cache.hit");
+    private final Counter misses = Metrics.counter("statistics.cache.miss");
+
+    /**
+     * Returns the statistics of the version computed on the day, or null if they are not cached.
+     */
+    public PersonStatistics get(long version, LocalDate day) {
+        Entry entry = last.get();
+        if (entry != null && entry.version == version && entry.day.equals(day)) {
+            hits.increment();
+            return entry.statistics;
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Caches the statistics unless newer ones are cached already.
+     */
+    public void put(long version, LocalDate day, PersonStatistics statistics) {
+        Entry entry = last.get();
+        if (entry == null || entry.version <= version) {
+            last = new SoftReference<>(new Entry(version, day, statistics));
+        }
+    }
+
+    private static final class Entry {
+
+        final long version;
+        final LocalDate day;
+        final PersonStatistics statistics;
+
+        Entry(long version, LocalDate day, PersonStatistics statistics) {
+            this.version = version;
+            this.day = day;
+            this.statistics = statistics;
+        }
+    }
+}
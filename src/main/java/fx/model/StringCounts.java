@@ -0,0 +1,120 @@
+package fx.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Counts occurrences of strings, for {@link PersonAggregator}.
+ * <p>
+ * An open-addressing hash table with linear probing over an array of keys and a parallel {@code int[]} of
+ * counts, so counting does not box and creates no entry objects. Not thread-safe: every chunk of an
+ * aggregation counts into its own instance, and the instances are merged afterwards.
+ */
+final class StringCounts {
+
+    private static final int INITIAL_CAPACITY = 64;
+    /* Таблица увеличивается вдвое, когда заполнена больше чем на 3/4 */
+    private static final int MAX_LOAD_PERCENT = 75;
+
+    private String[] keys;
+    private int[] counts;
+    private int size;
+    /* 32 - log2(ёмкость), для фибоначчиева хеширования */
+    private int shift;
+
+    StringCounts() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Returns the number of different strings counted.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds to the count of the key; null keys are not counted.
+     */
+    void add(String key, int count) {
+        if (key == null) {
+            return;
+        }
+        int mask = keys.length - 1;
+        int slot = slot(key);
+        while (keys[slot] != null) {
+            if (keys[slot].equals(key)) {
+                counts[slot] += count;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        counts[slot] = count;
+        size++;
+        ensureCapacity(size);
+    }
+
+    /**
+     * Adds the counts of the other instance to this one.
+     */
+    void addAll(StringCounts other) {
+        for (int slot = 0; slot < other.keys.length; slot++) {
+            if (other.keys[slot] != null) {
+                add(other.keys[slot], other.counts[slot]);
+            }
+        }
+    }
+
+    /**
+     * Returns the keys with the highest counts, highest first; of keys with equal counts the
+     * alphabetically first ones.
+     */
+    List<PersonStatistics.Count> top(int limit) {
+        // Holds the best entries seen so far, the worst of them at the head.
+        PriorityQueue<PersonStatistics.Count> best = new PriorityQueue<>(limit + 1, PersonStatistics.Count.ORDER.reversed());
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != null) {
+                best.add(new PersonStatistics.Count(keys[slot], counts[slot]));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        }
+        List<PersonStatistics.Count> top = new ArrayList<>(best);
+        Collections.sort(top, PersonStatistics.Count.ORDER);
+        return top;
+    }
+
+    private int slot(String key) {
+        return (key.hashCode() * 0x9E3779B9) >>> shift;
+    }
+
+    private void ensureCapacity(int expectedSize) {
+        if ((long) expectedSize * 100 <= (long) keys.length * MAX_LOAD_PERCENT) {
+            return;
+        }
+        String[] oldKeys = keys;
+        int[] oldCounts = counts;
+        allocate(keys.length * 2);
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = slot(oldKeys[i]);
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new String[capacity];
+        counts = new int[capacity];
+        shift = 32 - Integer.numberOfTrailingZeros(capacity);
+    }
+}
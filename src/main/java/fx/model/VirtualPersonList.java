@@ -0,0 +1,178 @@
+package fx.model;
+
+import fx.diagnostics.Counter;
+import fx.diagnostics.Metrics;
+import javafx.collections.ObservableListBase;
+
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.IntFunction;
+
+/**
+ * Observable list of persons stored on disk, for address books too large for the heap.
+ * <p>
+ * A row is decoded by the row reader only when it is asked for, in practice when the table shows it, and kept
+ * in a cache of the most recently used rows; the least recently used one is dropped when the cache is full.
+ * Memory therefore depends on the cache capacity and not on the number of persons. A person that is changed,
+ * by {@link #set} or by editing the values of a row returned by {@link #get}, is kept in memory until the list
+ * is discarded, since the reader would return the old values.
+ * <p>
+ * The list has a fixed size: persons can be replaced but not added or removed, those methods throw
+ * {@link UnsupportedOperationException}. Sorting or filtering it through {@code SortedList} and
+ * {@code FilteredList} would read every row, so the table shows it as it is. Like other observable lists it
+ * is used on the FX application thread only, except for {@link #snapshot()}.
+ */
+public class VirtualPersonList extends ObservableListBase<Person> {
+
+    /* Примерно в сто раз больше, чем строк на экране; 10 000 записей без свойств занимают около мегабайта */
+    public static final int DEFAULT_CACHE_CAPACITY = 10_000;
+
+    private final int size;
+    private final IntFunction<Person> rowReader;
+    private final Map<Integer, Person> cache;
+    /* Изменённые записи, вытеснять их нельзя */
+    private final Map<Integer, Person> edited = new HashMap<>();
+
+    private final Counter cacheHits = Metrics.counter("virtual.cache.hit");
+    private final Counter cacheMisses = Metrics.counter("virtual.cache.miss");
+
+    /**
+     * @param size          number of persons
+     * @param rowReader     decodes the person of a row, returning a new object on every call; may be called
+     *                      from several threads at once (see {@link #snapshot()})
+     * @param cacheCapacity number of unchanged rows kept in memory
+     */
+    public VirtualPersonList(int size, IntFunction<Person> rowReader, int cacheCapacity) {
+        if (size < 0 || cacheCapacity <= 0) {
+            throw new IllegalArgumentException("size " + size + ", cache capacity " + cacheCapacity);
+        }
+        this.size = size;
+        this.rowReader = Objects.requireNonNull(rowReader);
+        // Access order: get() moves the row to the end, the eldest entry is the least recently used.
+        this.cache = new LinkedHashMap<Integer, Person>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Person> eldest) {
+                return size() > cacheCapacity;
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Person get(int index) {
+        checkIndex(index);
+        Person person = edited.get(index);
+        if (person == null) {
+            person = cache.get(index);
+            if (person != null) {
+                cacheHits.increment();
+            } else {
+                cacheMisses.increment();
+                person = rowReader.apply(index);
+                person.setChangeListener(new RowListener(index));
+                cache.put(index, person);
+            }
+        }
+        return person;
+    }
+
+    /**
+     * Replaces the person of a row; the new person is kept in memory.
+     */
+    @Override
+    public Person set(int index, Person person) {
+        Objects.requireNonNull(person);
+        Person old = get(index);
+        if (person == old) {
+            return old;
+        }
+        cache.remove(index);
+        edited.put(index, person);
+        person.setChangeListener(new RowListener(index));
+        old.setChangeListener(null);
+
+        beginChange();
+        try {
+            nextSet(index, old);
+        } finally {
+            endChange();
+        }
+        return old;
+    }
+
+    /**
+     * Returns the number of changed persons held in memory.
+     */
+    public int getEditedCount() {
+        return edited.size();
+    }
+
+    /**
+     * Returns the number of unchanged rows in the cache.
+     */
+    public int getCachedCount() {
+        return cache.size();
+    }
+
+    /**
+     * Returns a read-only view of the persons as they are now, to be saved in the background. The values of the
+     * changed persons are copied, the other rows are read again on every access and do not go through the cache,
+     * so the view may be read from another thread and does not push the shown rows out of the cache.
+     */
+    public List<Person> snapshot() {
+        Map<Integer, Person> editedNow = new HashMap<>(edited.size() * 2);
+        for (Map.Entry<Integer, Person> row : edited.entrySet()) {
+            editedNow.put(row.getKey(), row.getValue().copy());
+        }
+        return new AbstractList<Person>() {
+            @Override
+            public Person get(int index) {
+                checkIndex(index);
+                Person person = editedNow.get(index);
+                return person != null ? person : rowReader.apply(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /**
+     * Keeps a row in memory once its values are changed. The table may still hold a person that was
+     * dropped from the cache, that one is kept instead of the copy read since.
+     */
+    private final class RowListener implements PersonChangeListener {
+
+        private final int index;
+
+        RowListener(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void personChanged(Person person, String propertyName, Object oldValue, Object newValue) {
+            if (edited.get(index) != person) {
+                cache.remove(index);
+                edited.put(index, person);
+            }
+        }
+    }
+}
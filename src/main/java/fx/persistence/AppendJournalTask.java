@@ -0,0 +1,67 @@
+package fx.persistence;
+
+import fx.diagnostics.Metrics;
+import fx.diagnostics.FlightEvents;
+import fx.model.Person;
+import javafx.concurrent.Task;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Saves the changes made since the last save by appending them to the journal of the file, instead of
+ * rewriting the whole file. The value of the task is the size of the journal afterwards, to decide
+ * whether it is time for a {@link CompactJournalTask}.
+ */
+public class AppendJournalTask extends Task<Long> {
+
+    private final File file;
+    private final Map<Integer, Person> changes;
+    private final byte[] records;
+    private final int count;
+
+    /**
+     * Must be created on the FX thread: the changed persons are encoded right away, later edits go
+     * into the next save.
+     *
+     * @param changes the latest state per id, null values for deleted persons
+     */
+    public AppendJournalTask(Map<Integer, Person> changes, File file) throws IOException {
+        this.file = file;
+        this.changes = changes;
+        this.records = PersonJournal.encode(changes);
+        this.count = changes.size();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the changes being saved, to put them back into the log if the save fails.
+     */
+    public Map<Integer, Person> getChanges() {
+        return changes;
+    }
+
+    @Override
+    protected Long call() throws Exception {
+        File journal = PersonJournal.fileFor(file);
+        updateMessage("Saving " + count + " changes to " + journal.getName() + "...");
+        long start = System.nanoTime();
+        FlightEvents.IoSpan event = FlightEvents.persistence("journal", journal);
+        boolean succeeded = false;
+        long size;
+        try {
+            size = PersonJournal.append(file, records);
+            succeeded = true;
+        } finally {
+            event.complete(records.length, count, succeeded);
+        }
+        Metrics.recordTransfer("persistence.journal", start, records.length, count);
+        updateProgress(1, 1);
+        updateMessage("Saved " + count + " changes to " + journal.getName());
+        return size;
+    }
+}
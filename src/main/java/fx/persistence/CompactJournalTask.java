@@ -0,0 +1,79 @@
+package fx.persistence;
+
+import fx.diagnostics.Metrics;
+import fx.diagnostics.FlightEvents;
+import fx.model.Person;
+import javafx.concurrent.Task;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Folds the journal of an address book into a fresh snapshot and deletes it. Works on the files only,
+ * the persons in memory are not touched. The new snapshot replaces the old one atomically; a journal
+ * that cannot be deleted afterwards no longer matches the snapshot and is ignored (see {@link PersonJournal}).
+ * The value of the task is the number of persons in the new snapshot.
+ */
+public class CompactJournalTask extends Task<Integer> {
+
+    private final File file;
+
+    public CompactJournalTask(File file) {
+        this.file = file;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    protected Integer call() throws Exception {
+        File journal = PersonJournal.fileFor(file);
+        Map<Integer, Person> changes = PersonJournal.read(file);
+        if (changes.isEmpty()) {
+            Files.deleteIfExists(journal.toPath());
+            return 0;
+        }
+        updateMessage("Compacting " + file.getName() + "...");
+        long start = System.nanoTime();
+        FlightEvents.IoSpan event = FlightEvents.persistence("compact", file);
+        boolean succeeded = false;
+
+        int count = 0;
+        try (PersonWriter writer = PersonFileFormat.forFile(file).createWriter(file)) {
+            try {
+                PersonJournal.readWithChanges(file, batch -> writeAll(writer, batch));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            if (isCancelled()) {
+                return writer.getCount();
+            }
+            writer.commit();
+            count = writer.getCount();
+            succeeded = true;
+        } finally {
+            event.complete(file.length(), count, succeeded);
+        }
+        PersonJournal.deleteObsolete(file);
+        Metrics.recordTransfer("persistence.compact", start, file.length(), count);
+
+        updateProgress(1, 1);
+        updateMessage("Compacted " + file.getName() + ": " + count + " persons");
+        return count;
+    }
+
+    private static void writeAll(PersonWriter writer, List<Person> persons) {
+        try {
+            for (Person person : persons) {
+                writer.write(person);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
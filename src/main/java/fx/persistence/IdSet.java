@@ -0,0 +1,85 @@
+package fx.persistence;
+
+import java.util.Arrays;
+
+/**
+ * A set of person ids, for finding ids that occur twice in a file.
+ * <p>
+ * An open-addressing hash table with linear probing over an {@code int[]}, like {@link fx.model.PersonIdIndex},
+ * so a million ids take a few megabytes and no {@code Integer} objects. Not thread-safe.
+ */
+final class IdSet {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    /* Таблица увеличивается вдвое, когда заполнена больше чем на 3/4 */
+    private static final int MAX_LOAD_PERCENT = 75;
+    /* Пустая ячейка; сам этот id хранится отдельным флагом */
+    private static final int EMPTY = Integer.MIN_VALUE;
+
+    private int[] ids;
+    private int size;
+    private boolean containsEmpty;
+    /* 32 - log2(ёмкость), для фибоначчиева хеширования */
+    private int shift;
+
+    IdSet() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    int size() {
+        return size + (containsEmpty ? 1 : 0);
+    }
+
+    /**
+     * Adds the id.
+     *
+     * @return false if the set already contained it
+     */
+    boolean add(int id) {
+        if (id == EMPTY) {
+            boolean added = !containsEmpty;
+            containsEmpty = true;
+            return added;
+        }
+        int mask = ids.length - 1;
+        int slot = slot(id);
+        while (ids[slot] != EMPTY) {
+            if (ids[slot] == id) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        ids[slot] = id;
+        size++;
+        ensureCapacity();
+        return true;
+    }
+
+    private int slot(int id) {
+        return (id * 0x9E3779B9) >>> shift;
+    }
+
+    private void ensureCapacity() {
+        if ((long) size * 100 <= (long) ids.length * MAX_LOAD_PERCENT) {
+            return;
+        }
+        int[] oldIds = ids;
+        allocate(ids.length * 2);
+        int mask = ids.length - 1;
+        for (int id : oldIds) {
+            if (id != EMPTY) {
+                int slot = slot(id);
+                while (ids[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                ids[slot] = id;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        ids = new int[capacity];
+        Arrays.fill(ids, EMPTY);
+        shift = Integer.numberOfLeadingZeros(capacity) + 1;
+    }
+}
@@ -0,0 +1,71 @@
+package fx.persistence;
+
+import fx.model.PersonListWrapper;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+
+/**
+ * Process-wide JAXB context for {@link PersonListWrapper} and {@link fx.model.Person}.
+ * <p>
+ * Building a context reflects over the mapped classes and is by far the most expensive part of a small
+ * load or save, so it is created once and shared ({@link JAXBContext} is thread-safe). Marshallers and
+ * unmarshallers are not thread-safe; every thread gets its own instance, created on first use and
+ * reused afterwards.
+ */
+public final class JaxbContextHolder {
+
+    private static final ThreadLocal<Marshaller> MARSHALLER = ThreadLocal.withInitial(() -> {
+        try {
+            Marshaller marshaller = getContext().createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+            return marshaller;
+        } catch (JAXBException e) {
+            throw new IllegalStateException("Could not create JAXB marshaller", e);
+        }
+    });
+
+    private static final ThreadLocal<Unmarshaller> UNMARSHALLER = ThreadLocal.withInitial(() -> {
+        try {
+            return getContext().createUnmarshaller();
+        } catch (JAXBException e) {
+            throw new IllegalStateException("Could not create JAXB unmarshaller", e);
+        }
+    });
+
+    private JaxbContextHolder() {
+    }
+
+    /* Контекст создаётся при первом обращении к holder'у (lazy holder idiom) */
+    private static final class ContextHolder {
+        private static final JAXBContext CONTEXT = createContext();
+
+        private static JAXBContext createContext() {
+            try {
+                return JAXBContext.newInstance(PersonListWrapper.class);
+            } catch (JAXBException e) {
+                throw new IllegalStateException("Could not create JAXB context", e);
+            }
+        }
+    }
+
+    public static JAXBContext getContext() {
+        return ContextHolder.CONTEXT;
+    }
+
+    /**
+     * Returns the marshaller of the calling thread, configured for formatted output.
+     */
+    public static Marshaller getMarshaller() {
+        return MARSHALLER.get();
+    }
+
+    /**
+     * Returns the unmarshaller of the calling thread.
+     */
+    public static Unmarshaller getUnmarshaller() {
+        return UNMARSHALLER.get();
+    }
+}
@@ -0,0 +1,33 @@
+package fx.persistence;
+
+import fx.model.Person;
+import fx.model.PersonListWrapper;
+
+import javax.xml.bind.JAXBException;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Whole-document JAXB load and save of the address book XML.
+ * <p>
+ * The application itself streams with {@link PersonXmlReader} and {@link PersonXmlWriter}; this is
+ * the reference implementation of the format for tooling and comparisons. It reuses the shared
+ * context and the per-thread (un)marshallers of {@link JaxbContextHolder}.
+ */
+public final class JaxbPersonStore {
+
+    private JaxbPersonStore() {
+    }
+
+    public static List<Person> load(File file) throws JAXBException {
+        PersonListWrapper wrapper = (PersonListWrapper) JaxbContextHolder.getUnmarshaller().unmarshal(file);
+        return wrapper.getPersons() != null ? wrapper.getPersons() : new ArrayList<>();
+    }
+
+    public static void save(List<Person> persons, File file) throws JAXBException {
+        PersonListWrapper wrapper = new PersonListWrapper();
+        wrapper.setPersons(persons);
+        JaxbContextHolder.getMarshaller().marshal(wrapper, file);
+    }
+}
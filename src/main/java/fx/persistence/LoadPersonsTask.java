@@ -0,0 +1,282 @@
+package fx.persistence;
+
+import fx.diagnostics.Metrics;
+import fx.diagnostics.FlightEvents;
+import fx.model.IdAllocator;
+import fx.model.Person;
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Loads an address book in the background and replaces the content of the target list with it.
+ * <p>
+ * Persons reach the FX thread in batches as they are parsed: the first batch replaces the old content
+ * with one {@code setAll}, the following ones are appended. At most {@link #MAX_BATCHES_IN_FLIGHT}
+ * batches wait for the FX thread at any time, which keeps the memory of a load bounded.
+ * The {@link PersonJournal} of the file is replayed over the snapshot while it streams in. Persons whose id
+ * already occurred in the file get a new one, since the change log and the journal are keyed by id.
+ * The value of the task is the number of persons loaded.
+ */
+public class LoadPersonsTask extends Task<Integer> {
+
+    private static final int MAX_BATCHES_IN_FLIGHT = 4;
+
+    private final File file;
+    private final ObservableList<Person> target;
+    private final PersonChangeLog changeLog;
+    private final Semaphore batchesInFlight = new Semaphore(MAX_BATCHES_IN_FLIGHT);
+    private boolean firstBatchSent;
+    private int loadedCount;
+    /* Изменяется только в FX-потоке */
+    private boolean targetReplaced;
+    /* Пропущенные строки CSV, известны после завершения задачи */
+    private volatile int malformedRowCount;
+    private volatile List<String> malformedRows = Collections.emptyList();
+    /* Идентификаторы, уже переданные в список, для поиска повторов */
+    private final IdSet loadedIds = new IdSet();
+    private volatile int reassignedIdCount;
+    /* CSV без столбца id: идентификаторы выданы заново, файл нельзя дополнять журналом */
+    private volatile boolean idsAssigned;
+
+    /**
+     * @param changeLog the log of unsaved changes of the target; the load itself is not recorded in it
+     */
+    public LoadPersonsTask(File file, ObservableList<Person> target, PersonChangeLog changeLog) {
+        this.file = file;
+        this.target = target;
+        this.changeLog = changeLog;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns true if the old content of the target list has already been replaced. Must be called on the
+     * FX thread; a cancelled or failed load that replaced the content leaves only a part of the file there.
+     */
+    public boolean isTargetReplaced() {
+        return targetReplaced;
+    }
+
+    /**
+     * Returns the number of rows of a CSV file that were skipped because they could not be parsed.
+     */
+    public int getMalformedRowCount() {
+        return malformedRowCount;
+    }
+
+    /**
+     * Describes the first {@link PersonCsvReader#MAX_REPORTED_ROWS} skipped rows.
+     */
+    public List<String> getMalformedRows() {
+        return malformedRows;
+    }
+
+    /**
+     * Returns true if persons got ids other than those in the file: because the file has none (a CSV file
+     * without an id column), or because an id occurred more than once. The ids in memory do not match the
+     * file then, so changes must not be appended to its journal; the file has to be saved as a whole.
+     */
+    public boolean isIdsAssigned() {
+        return idsAssigned || reassignedIdCount > 0;
+    }
+
+    /**
+     * Returns the number of persons that got a new id because their id already occurred in the file.
+     */
+    public int getReassignedIdCount() {
+        return reassignedIdCount;
+    }
+
+    @Override
+    protected Integer call() throws Exception {
+        updateMessage("Loading " + file.getName() + "...");
+        long start = System.nanoTime();
+
+        File journal = PersonJournal.fileFor(file);
+        FlightEvents.IoSpan event = FlightEvents.persistence("load", file);
+        boolean succeeded = false;
+        try {
+            PersonJournal.Replay replay = new PersonJournal.Replay(PersonJournal.read(file));
+            switch (PersonFileFormat.forFile(file)) {
+                case BINARY:
+                    loadBinary(replay);
+                    break;
+                case CSV:
+                    loadCsv(replay);
+                    break;
+                default:
+                    loadXml(replay);
+            }
+            List<Person> added = replay.remaining();
+            if (!added.isEmpty()) {
+                commit(added);
+            }
+            if (!firstBatchSent) {
+                // Empty file, there is no batch to replace the old content with.
+                commit(null);
+            }
+            succeeded = true;
+        } finally {
+            event.complete(file.length() + journal.length(), loadedCount, succeeded);
+        }
+        // The persons may still wait for the FX thread, this is the time spent reading.
+        Metrics.recordTransfer("persistence.load", start, file.length() + journal.length(), loadedCount);
+        updateProgress(1, 1);
+        updateMessage("Loaded " + loadedCount + " persons from " + file.getName()
+                + (malformedRowCount > 0 ? ", skipped " + malformedRowCount + " malformed rows" : "")
+                + (reassignedIdCount > 0 ? ", gave new ids to " + reassignedIdCount + " duplicates" : ""));
+        return loadedCount;
+    }
+
+    private int loadXml(PersonJournal.Replay replay) throws Exception {
+        long fileSize = file.length();
+        try (CountingInputStream inputStream = new CountingInputStream(new FileInputStream(file))) {
+            return new PersonXmlReader().read(new BufferedInputStream(inputStream), batch -> {
+                checkCancelled();
+                commit(replay.apply(batch));
+                updateProgress(inputStream.getCount(), fileSize);
+                updateMessage("Loading " + file.getName() + ": " + inputStream.getCount() / 1024 + " of " + fileSize / 1024 + " KB");
+            });
+        }
+    }
+
+    private int loadBinary(PersonJournal.Replay replay) throws IOException {
+        try (PersonBinaryFile binaryFile = PersonBinaryFile.open(file)) {
+            int total = binaryFile.size();
+            int[] loaded = {0};
+            return binaryFile.read(PersonXmlReader.DEFAULT_BATCH_SIZE, batch -> {
+                checkCancelled();
+                commit(replay.apply(batch));
+                loaded[0] += batch.size();
+                updateProgress(loaded[0], total);
+                updateMessage("Loading " + file.getName() + ": " + loaded[0] + " of " + total + " persons");
+            });
+        }
+    }
+
+    private int loadCsv(PersonJournal.Replay replay) throws IOException {
+        long fileSize = file.length();
+        PersonCsvReader reader = new PersonCsvReader();
+        int count = reader.read(file, batch -> {
+            checkCancelled();
+            if (!reader.hasIdColumn()) {
+                // A journal refers to ids of the file, there are none to match.
+                replay.discard();
+            }
+            commit(replay.apply(batch));
+            updateProgress(reader.getBytesRead(), fileSize);
+            updateMessage("Loading " + file.getName() + ": " + reader.getBytesRead() / 1024 + " of " + fileSize / 1024 + " KB");
+        });
+        idsAssigned = !reader.hasIdColumn();
+        malformedRowCount = reader.getMalformedCount();
+        malformedRows = reader.getMalformedRows();
+        return count;
+    }
+
+    private void checkCancelled() {
+        if (isCancelled()) {
+            throw new CancellationException();
+        }
+    }
+
+    private void commit(List<Person> batch) {
+        if (batch != null) {
+            int maxId = Integer.MIN_VALUE;
+            for (Person person : batch) {
+                maxId = Math.max(maxId, person.getId());
+            }
+            // Persons created later must not take the ids of the loaded ones.
+            IdAllocator.ensureAbove(maxId);
+            for (Person person : batch) {
+                if (!loadedIds.add(person.getId())) {
+                    // Older files may repeat ids; the persons are not in the list yet, so they are renumbered here.
+                    person.setId(IdAllocator.next());
+                    loadedIds.add(person.getId());
+                    reassignedIdCount++;
+                }
+            }
+            loadedCount += batch.size();
+        }
+        batchesInFlight.acquireUninterruptibly();
+        boolean first = !firstBatchSent;
+        firstBatchSent = true;
+        Platform.runLater(() -> {
+            try {
+                if (isCancelled()) {
+                    return;
+                }
+                changeLog.runUnrecorded(() -> {
+                    if (first) {
+                        targetReplaced = true;
+                        // Changes of the old content do not belong to this file.
+                        changeLog.clear();
+                        if (batch != null) {
+                            target.setAll(batch);
+                        } else {
+                            target.clear();
+                        }
+                    } else {
+                        target.addAll(batch);
+                    }
+                });
+            } finally {
+                batchesInFlight.release();
+            }
+        });
+    }
+
+    /**
+     * Counts the bytes read, for the progress of the task.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        private volatile long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package fx.persistence;
+
+import fx.model.Person;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Read access to a binary address book snapshot ({@code .pbin}) written by {@link PersonBinaryWriter}.
+ * <p>
+ * Layout of the file (all numbers big-endian):
+ * <pre>
+ * header      magic "PBIN", version, record count, dictionary size, dictionary offset (long), reserved (long)
+ * rows        record count x 28 bytes: id, first name, last name, street, city, postal code, birthday
+ * dictionary  dictionary size x (byte length, UTF-8 bytes)
+ * </pre>
+ * Strings in the rows are indexes into the dictionary ({@code -1} for null), so repeated names and
+ * cities are stored once. The birthday is an epoch day ({@link Integer#MIN_VALUE} for null).
+ * <p>
+ * The rows and the dictionary are memory-mapped and decoded at fixed offsets, there is nothing to parse.
+ * Opening the file only collects the offsets of the dictionary strings, 4 bytes each; a string is decoded
+ * when a row refers to it, so the heap does not grow with the dictionary (streets are nearly unique).
+ * {@link #get(int)} keeps the {@value #STRING_CACHE_CAPACITY} strings used last, which covers the common
+ * names and cities; {@link #read} decodes every string once and shares it between the persons it creates.
+ * Reads do not change any buffer position, so {@link #get(int)} may be called from several threads.
+ */
+public class PersonBinaryFile implements Closeable {
+
+    static final int MAGIC = 0x5042494E; // "PBIN"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int ROW_SIZE = 28;
+    static final int NO_STRING = -1;
+    static final int NO_BIRTHDAY = Integer.MIN_VALUE;
+
+    /* Один MappedByteBuffer не может быть больше 2 ГБ, поэтому строки отображаются окнами */
+    private static final int ROWS_PER_WINDOW = Integer.MAX_VALUE / ROW_SIZE;
+    static final int STRING_CACHE_CAPACITY = 4096;
+
+    private final FileChannel channel;
+    private final int size;
+    private final ByteBuffer dictionary;
+    /* Смещение каждой строки словаря от его начала */
+    private final int[] stringOffsets;
+    private final MappedByteBuffer[] rowWindows;
+    /* Недавно декодированные строки по номеру в словаре, для get() из любого потока */
+    private final Map<Integer, String> recentStrings = Collections.synchronizedMap(
+            new LinkedHashMap<Integer, String>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+                    return size() > STRING_CACHE_CAPACITY;
+                }
+            });
+
+    private PersonBinaryFile(FileChannel channel, int size, ByteBuffer dictionary, int[] stringOffsets, MappedByteBuffer[] rowWindows) {
+        this.channel = channel;
+        this.size = size;
+        this.dictionary = dictionary;
+        this.stringOffsets = stringOffsets;
+        this.rowWindows = rowWindows;
+    }
+
+    public static PersonBinaryFile open(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) {
+                throw new IOException("Not a person snapshot: " + file);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a person snapshot: " + file);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + file);
+            }
+            int size = header.getInt();
+            int dictionarySize = header.getInt();
+            long dictionaryOffset = header.getLong();
+            if (size < 0 || dictionarySize < 0 || dictionaryOffset != HEADER_SIZE + (long) size * ROW_SIZE || dictionaryOffset > fileSize) {
+                throw new IOException("Corrupt person snapshot: " + file);
+            }
+
+            long dictionaryLength = fileSize - dictionaryOffset;
+            if (dictionaryLength > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot dictionary too large: " + dictionaryLength + " bytes");
+            }
+            ByteBuffer dictionary = channel.map(FileChannel.MapMode.READ_ONLY, dictionaryOffset, dictionaryLength);
+            int[] stringOffsets = findStrings(dictionary, dictionarySize, file);
+
+            int windowCount = (size + ROWS_PER_WINDOW - 1) / ROWS_PER_WINDOW;
+            MappedByteBuffer[] rowWindows = new MappedByteBuffer[windowCount];
+            for (int window = 0; window < windowCount; window++) {
+                long firstRow = (long) window * ROWS_PER_WINDOW;
+                long rows = Math.min(ROWS_PER_WINDOW, size - firstRow);
+                rowWindows[window] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + firstRow * ROW_SIZE, rows * ROW_SIZE);
+            }
+            return new PersonBinaryFile(channel, size, dictionary, stringOffsets, rowWindows);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the offset of every string of the dictionary, skipping from one length to the next.
+     */
+    private static int[] findStrings(ByteBuffer dictionary, int dictionarySize, File file) throws IOException {
+        int[] offsets = new int[dictionarySize];
+        int offset = 0;
+        for (int i = 0; i < dictionarySize; i++) {
+            if (dictionary.limit() - offset < 4) {
+                throw new IOException("Corrupt person snapshot: " + file);
+            }
+            int byteLength = dictionary.getInt(offset);
+            if (byteLength < 0 || byteLength > dictionary.limit() - offset - 4) {
+                throw new IOException("Corrupt person snapshot: " + file);
+            }
+            offsets[i] = offset;
+            offset += 4 + byteLength;
+        }
+        return offsets;
+    }
+
+    /**
+     * Returns the number of persons in the file.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Decodes the person stored in the given row. Every call creates a new {@link Person}.
+     */
+    public Person get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        return decode(index, this::cachedString);
+    }
+
+    private Person decode(int index, IntFunction<String> strings) {
+        ByteBuffer rows = rowWindows[index / ROWS_PER_WINDOW];
+        int offset = (index % ROWS_PER_WINDOW) * ROW_SIZE;
+        return new Person(
+                rows.getInt(offset),
+                strings.apply(rows.getInt(offset + 4)),
+                strings.apply(rows.getInt(offset + 8)),
+                strings.apply(rows.getInt(offset + 12)),
+                rows.getInt(offset + 20),
+                strings.apply(rows.getInt(offset + 16)),
+                fromEpochDay(rows.getInt(offset + 24)));
+    }
+
+    /**
+     * Decodes all persons in file order and hands them to the consumer in batches.
+     *
+     * @return the number of persons read
+     */
+    public int read(int batchSize, Consumer<List<Person>> batchConsumer) {
+        // All persons end up in memory anyway, so each string is decoded once and shared by them.
+        String[] decoded = new String[stringOffsets.length];
+        IntFunction<String> strings = stringIndex -> {
+            if (stringIndex == NO_STRING) {
+                return null;
+            }
+            String string = decoded[stringIndex];
+            if (string == null) {
+                string = decodeString(stringIndex);
+                decoded[stringIndex] = string;
+            }
+            return string;
+        };
+        for (int from = 0; from < size; from += batchSize) {
+            int to = Math.min(size, from + batchSize);
+            List<Person> batch = new ArrayList<>(to - from);
+            for (int index = from; index < to; index++) {
+                batch.add(decode(index, strings));
+            }
+            batchConsumer.accept(batch);
+        }
+        return size;
+    }
+
+    private String cachedString(int stringIndex) {
+        if (stringIndex == NO_STRING) {
+            return null;
+        }
+        return recentStrings.computeIfAbsent(stringIndex, this::decodeString);
+    }
+
+    private String decodeString(int stringIndex) {
+        int offset = stringOffsets[stringIndex];
+        int byteLength = dictionary.getInt(offset);
+        byte[] bytes = new byte[byteLength];
+        // A duplicate has its own position, the shared buffer is only read at absolute offsets.
+        ByteBuffer source = dictionary.duplicate();
+        source.position(offset + 4);
+        source.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static int toEpochDay(LocalDate date) {
+        return date == null ? NO_BIRTHDAY : (int) date.toEpochDay();
+    }
+
+    static LocalDate fromEpochDay(int epochDay) {
+        return epochDay == NO_BIRTHDAY ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    /**
+     * Closes the file. The mapped rows are released by the garbage collector, persons read from
+     * the file stay valid.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
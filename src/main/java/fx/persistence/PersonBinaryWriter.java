@@ -0,0 +1,137 @@
+package fx.persistence;
+
+import fx.model.Person;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static fx.persistence.PersonBinaryFile.*;
+
+/**
+ * Writes a binary address book snapshot in the layout described in {@link PersonBinaryFile}.
+ * <p>
+ * Rows are written in one pass through a direct buffer while the string dictionary is collected;
+ * the dictionary follows the rows and the header is filled in on {@link #commit()}. Like the XML
+ * writer it writes to a temporary file that replaces the target only on commit.
+ */
+public class PersonBinaryWriter implements PersonWriter {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final Path target;
+    private final Path tempFile;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final Map<String, Integer> dictionaryIndexes = new HashMap<>();
+    private final List<String> dictionary = new ArrayList<>();
+    private int count;
+    private boolean committed;
+
+    public PersonBinaryWriter(File file) throws IOException {
+        this.target = file.toPath().toAbsolutePath();
+        this.tempFile = PersistenceFiles.temporaryFileFor(target);
+        this.channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.channel.position(HEADER_SIZE);
+    }
+
+    @Override
+    public void write(Person person) throws IOException {
+        ensureRemaining(ROW_SIZE);
+        buffer.putInt(person.getId());
+        buffer.putInt(dictionaryIndex(person.getFirstName()));
+        buffer.putInt(dictionaryIndex(person.getLastName()));
+        buffer.putInt(dictionaryIndex(person.getStreet()));
+        buffer.putInt(dictionaryIndex(person.getCity()));
+        buffer.putInt(person.getPostalCode());
+        buffer.putInt(toEpochDay(person.getBirthday()));
+        count++;
+    }
+
+    private int dictionaryIndex(String value) {
+        if (value == null) {
+            return NO_STRING;
+        }
+        Integer index = dictionaryIndexes.get(value);
+        if (index == null) {
+            index = dictionary.size();
+            dictionaryIndexes.put(value, index);
+            dictionary.add(value);
+        }
+        return index;
+    }
+
+    @Override
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public void commit() throws IOException {
+        long dictionaryOffset = HEADER_SIZE + (long) count * ROW_SIZE;
+        for (String value : dictionary) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            ensureRemaining(4 + bytes.length);
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+        flushBuffer();
+
+        buffer.clear();
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(count);
+        buffer.putInt(dictionary.size());
+        buffer.putLong(dictionaryOffset);
+        buffer.putLong(0L);
+        buffer.flip();
+        long position = 0;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+
+        channel.force(true);
+        channel.close();
+        PersistenceFiles.replace(tempFile, target);
+        committed = true;
+    }
+
+    private void ensureRemaining(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flushBuffer();
+            if (buffer.remaining() < bytes) {
+                throw new IOException("Value too large for the snapshot buffer: " + bytes + " bytes");
+            }
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Releases the file. Without a preceding {@link #commit()} the temporary file is deleted
+     * and the target stays as it was.
+     */
+    @Override
+    public void close() throws IOException {
+        if (committed) {
+            return;
+        }
+        channel.close();
+        Files.deleteIfExists(tempFile);
+    }
+}
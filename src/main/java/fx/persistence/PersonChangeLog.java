@@ -0,0 +1,116 @@
+package fx.persistence;
+
+import fx.model.Person;
+import fx.model.PersonChangeTracker;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the changes of the person list since it was last saved, as the latest state per person id:
+ * the person for added and edited ones, null for removed ones. Fed by a {@link PersonChangeTracker}
+ * and used on the FX application thread only.
+ * <p>
+ * This is what a save appends to the {@link PersonJournal}, so the cost of a save depends on the number
+ * of changed persons only. The log is dirty while it holds changes, that is while there is something
+ * to save.
+ */
+public class PersonChangeLog implements PersonChangeTracker.Listener {
+
+    private Map<Integer, Person> changes = new LinkedHashMap<>();
+    private final ReadOnlyBooleanWrapper dirty = new ReadOnlyBooleanWrapper(this, "dirty");
+    /* Изменения, которые вносит сама загрузка файла, не записываются */
+    private boolean suspended;
+
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    public int size() {
+        return changes.size();
+    }
+
+    public boolean isDirty() {
+        return dirty.get();
+    }
+
+    public ReadOnlyBooleanProperty dirtyProperty() {
+        return dirty.getReadOnlyProperty();
+    }
+
+    /**
+     * Returns the changes collected so far and starts a new, empty log.
+     */
+    public Map<Integer, Person> drain() {
+        Map<Integer, Person> drained = changes;
+        changes = new LinkedHashMap<>();
+        dirty.set(false);
+        return drained;
+    }
+
+    /**
+     * Puts drained changes back after their save failed. Changes recorded since then are newer and win.
+     */
+    public void restore(Map<Integer, Person> drained) {
+        for (Map.Entry<Integer, Person> change : drained.entrySet()) {
+            changes.putIfAbsent(change.getKey(), change.getValue());
+        }
+        dirty.set(!changes.isEmpty());
+    }
+
+    public void clear() {
+        changes.clear();
+        dirty.set(false);
+    }
+
+    /**
+     * Runs the action without recording the changes it makes to the list.
+     */
+    public void runUnrecorded(Runnable action) {
+        boolean wasSuspended = suspended;
+        suspended = true;
+        try {
+            action.run();
+        } finally {
+            suspended = wasSuspended;
+        }
+    }
+
+    @Override
+    public void personsAdded(List<? extends Person> persons) {
+        if (suspended) {
+            return;
+        }
+        for (Person person : persons) {
+            changes.put(person.getId(), person);
+        }
+        dirty.set(!changes.isEmpty());
+    }
+
+    @Override
+    public void personsRemoved(List<? extends Person> persons) {
+        if (suspended) {
+            return;
+        }
+        for (Person person : persons) {
+            changes.put(person.getId(), null);
+        }
+        dirty.set(!changes.isEmpty());
+    }
+
+    @Override
+    public void personChanged(Person person, String propertyName, Object oldValue, Object newValue) {
+        if (suspended) {
+            return;
+        }
+        if (Person.ID_PROPERTY.equals(propertyName)) {
+            // The journal knows the person by its id, a new id is a delete of the old one.
+            changes.put((Integer) oldValue, null);
+        }
+        changes.put(person.getId(), person);
+        dirty.set(true);
+    }
+}
@@ -0,0 +1,429 @@
+package fx.persistence;
+
+import fx.model.IdAllocator;
+import fx.model.Person;
+import util.DateUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/**
+ * Reads an address book from a CSV file (RFC 4180, UTF-8) in parallel.
+ * <p>
+ * The first line names the columns, in any order: {@value #ID}, {@value #FIRST_NAME}, {@value #LAST_NAME},
+ * {@value #STREET}, {@value #POSTAL_CODE}, {@value #CITY} and {@value #BIRTHDAY}; the two names are required,
+ * other columns are ignored. Without an id column the persons get new ids in file order (see
+ * {@link #hasIdColumn()}). Birthdays are ISO dates
+ * ({@code 2000-01-31}) or in the format of the app ({@code 31.01.2000}), empty values are null.
+ * Quoted values may contain commas and doubled quotes but no line breaks, every row is one line.
+ * <p>
+ * The file is memory-mapped in chunks of about {@link #CHUNK_SIZE} bytes that end at a line break, and
+ * the chunks are decoded and parsed on the common fork-join pool. Their persons are handed to the caller
+ * in file order, one batch per chunk, while the following chunks are parsed; at most two chunks per
+ * worker are held at a time. A malformed row is skipped and counted, the file is read to the end.
+ * <p>
+ * An instance is not thread-safe, use one reader per file.
+ */
+public class PersonCsvReader {
+
+    static final String ID = "id";
+    static final String FIRST_NAME = "firstName";
+    static final String LAST_NAME = "lastName";
+    static final String STREET = "street";
+    static final String POSTAL_CODE = "postalCode";
+    static final String CITY = "city";
+    static final String BIRTHDAY = "birthday";
+    /* Порядок столбцов при записи, см. PersonCsvWriter */
+    static final String[] COLUMNS = {ID, FIRST_NAME, LAST_NAME, STREET, POSTAL_CODE, CITY, BIRTHDAY};
+    private static final int ID_COLUMN = 0;
+    private static final int FIRST_NAME_COLUMN = 1;
+    private static final int LAST_NAME_COLUMN = 2;
+    private static final int STREET_COLUMN = 3;
+    private static final int POSTAL_CODE_COLUMN = 4;
+    private static final int CITY_COLUMN = 5;
+    private static final int BIRTHDAY_COLUMN = 6;
+
+    static final int CHUNK_SIZE = 1024 * 1024;
+    /* Сколько описаний ошибочных строк сохраняется для отчёта */
+    public static final int MAX_REPORTED_ROWS = 20;
+
+    private static final byte[] BYTE_ORDER_MARK = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private final ForkJoinPool pool;
+    private volatile long bytesRead;
+    private boolean idColumn;
+    private int malformedCount;
+    private final List<String> malformedRows = new ArrayList<>();
+
+    public PersonCsvReader() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public PersonCsvReader(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Reads all persons of the file.
+     *
+     * @param batchConsumer receives the persons of every chunk in file order, on the calling thread
+     * @return the number of persons read
+     * @throws IOException if the file cannot be read or has no name columns
+     */
+    public int read(File file, Consumer<List<Person>> batchConsumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return 0;
+            }
+            ByteBuffer firstChunk = mapLines(channel, 0, size);
+            int headerStart = startsWith(firstChunk, BYTE_ORDER_MARK) ? BYTE_ORDER_MARK.length : 0;
+            int headerEnd = headerStart;
+            while (headerEnd < firstChunk.limit() && firstChunk.get(headerEnd) != '\n') {
+                headerEnd++;
+            }
+            int[] columns = parseHeader(decode(firstChunk, headerStart, headerEnd), file);
+            idColumn = columns[ID_COLUMN] >= 0;
+
+            Deque<ForkJoinTask<Chunk>> inFlight = new ArrayDeque<>();
+            int maxInFlight = pool.getParallelism() * 2;
+            long position = Math.min(size, headerEnd + 1L);
+            // The header is line 1.
+            long lineNumber = 1;
+            int count = 0;
+            try {
+                while (position < size || !inFlight.isEmpty()) {
+                    while (position < size && inFlight.size() < maxInFlight) {
+                        ByteBuffer bytes = mapLines(channel, position, size);
+                        position += bytes.limit();
+                        long end = position;
+                        inFlight.add(pool.submit(() -> parseChunk(bytes, columns, end)));
+                    }
+                    Chunk chunk = inFlight.remove().join();
+                    for (int i = 0; i < chunk.errorLines.size(); i++) {
+                        reportMalformed(lineNumber + chunk.errorLines.get(i), chunk.errors.get(i));
+                    }
+                    lineNumber += chunk.lineCount;
+                    bytesRead = chunk.end;
+                    count += chunk.persons.size();
+                    if (!idColumn) {
+                        // Numbered here rather than in the workers, so the ids follow the order of the rows.
+                        int id = IdAllocator.reserve(chunk.persons.size());
+                        for (Person person : chunk.persons) {
+                            person.setId(id++);
+                        }
+                    }
+                    if (!chunk.persons.isEmpty()) {
+                        batchConsumer.accept(chunk.persons);
+                    }
+                }
+            } finally {
+                // Only left over if the consumer or a chunk failed.
+                for (ForkJoinTask<Chunk> task : inFlight) {
+                    task.cancel(false);
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Returns the number of bytes of the file whose persons have been handed to the consumer; may be
+     * called from any thread.
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Returns true if the file has an id column. Otherwise the ids of the persons were handed out by
+     * {@link IdAllocator} while reading; they differ from load to load, so nothing keyed by id, like a
+     * {@link PersonJournal}, can refer to them.
+     */
+    public boolean hasIdColumn() {
+        return idColumn;
+    }
+
+    /**
+     * Returns the number of rows skipped because they could not be parsed.
+     */
+    public int getMalformedCount() {
+        return malformedCount;
+    }
+
+    /**
+     * Describes the first {@link #MAX_REPORTED_ROWS} skipped rows, like {@code "line 12: invalid id 'x'"}.
+     */
+    public List<String> getMalformedRows() {
+        return Collections.unmodifiableList(malformedRows);
+    }
+
+    private void reportMalformed(long line, String error) {
+        malformedCount++;
+        if (malformedRows.size() < MAX_REPORTED_ROWS) {
+            malformedRows.add("line " + line + ": " + error);
+        }
+    }
+
+    /**
+     * Maps the lines from the position on, about {@link #CHUNK_SIZE} bytes up to and including a line break,
+     * or to the end of the file. A line longer than a chunk makes the chunk larger.
+     */
+    private static ByteBuffer mapLines(FileChannel channel, long position, long size) throws IOException {
+        long length = Math.min(CHUNK_SIZE, size - position);
+        while (true) {
+            ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            if (position + length == size) {
+                return bytes;
+            }
+            for (int i = (int) length - 1; i >= 0; i--) {
+                if (bytes.get(i) == '\n') {
+                    bytes.limit(i + 1);
+                    return bytes;
+                }
+            }
+            if (length > Integer.MAX_VALUE / 2) {
+                throw new IOException("Line too long at byte " + position);
+            }
+            length = Math.min(length * 2, size - position);
+        }
+    }
+
+    private static boolean startsWith(ByteBuffer bytes, byte[] prefix) {
+        if (bytes.limit() < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes.get(i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String decode(ByteBuffer bytes, int from, int to) {
+        ByteBuffer range = bytes.duplicate();
+        range.limit(to).position(from);
+        return StandardCharsets.UTF_8.decode(range).toString();
+    }
+
+    /**
+     * Returns the index of the field of every column of {@link #COLUMNS}, -1 for a missing column.
+     */
+    private static int[] parseHeader(String header, File file) throws IOException {
+        List<String> names = new ArrayList<>();
+        String error = splitFields(header, 0, lineEnd(header, 0, header.length()), names);
+        if (error != null) {
+            throw new IOException("Invalid CSV header (" + error + "): " + file);
+        }
+        int[] columns = new int[COLUMNS.length];
+        for (int column = 0; column < COLUMNS.length; column++) {
+            columns[column] = -1;
+            for (int field = 0; field < names.size(); field++) {
+                if (names.get(field).trim().toLowerCase(Locale.ROOT).equals(COLUMNS[column].toLowerCase(Locale.ROOT))) {
+                    columns[column] = field;
+                    break;
+                }
+            }
+        }
+        for (int required : new int[]{FIRST_NAME_COLUMN, LAST_NAME_COLUMN}) {
+            if (columns[required] < 0) {
+                throw new IOException("Not a person CSV file, there is no column '" + COLUMNS[required] + "': " + file);
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Parses the lines of a chunk, on a worker of the pool.
+     */
+    private static Chunk parseChunk(ByteBuffer bytes, int[] columns, long end) {
+        String text = decode(bytes, 0, bytes.limit());
+        Chunk chunk = new Chunk(end);
+        List<String> fields = new ArrayList<>(COLUMNS.length);
+        int fieldCount = 0;
+        for (int column : columns) {
+            fieldCount = Math.max(fieldCount, column + 1);
+        }
+        int length = text.length();
+        int start = 0;
+        while (start < length) {
+            int lineBreak = text.indexOf('\n', start);
+            if (lineBreak < 0) {
+                lineBreak = length;
+            }
+            chunk.lineCount++;
+            int lineEnd = lineEnd(text, start, lineBreak);
+            if (lineEnd > start) {
+                String error = splitFields(text, start, lineEnd, fields);
+                if (error == null && fields.size() < fieldCount) {
+                    error = "expected " + fieldCount + " values, found " + fields.size();
+                }
+                if (error == null) {
+                    try {
+                        chunk.persons.add(toPerson(fields, columns));
+                    } catch (MalformedRowException e) {
+                        error = e.getMessage();
+                    }
+                }
+                if (error != null) {
+                    // Relative to the line before the chunk.
+                    chunk.errorLines.add(chunk.lineCount);
+                    chunk.errors.add(error);
+                }
+            }
+            start = lineBreak + 1;
+        }
+        return chunk;
+    }
+
+    /**
+     * Returns the end of the line without a trailing carriage return.
+     */
+    private static int lineEnd(String text, int start, int end) {
+        return end > start && text.charAt(end - 1) == '\r' ? end - 1 : end;
+    }
+
+    /**
+     * Splits the line into its values.
+     *
+     * @return null, or what is wrong with the line
+     */
+    private static String splitFields(String text, int from, int to, List<String> fields) {
+        fields.clear();
+        int i = from;
+        while (true) {
+            if (i < to && text.charAt(i) == '"') {
+                StringBuilder value = new StringBuilder();
+                i++;
+                while (true) {
+                    if (i >= to) {
+                        return "unterminated quote";
+                    }
+                    char c = text.charAt(i++);
+                    if (c != '"') {
+                        value.append(c);
+                    } else if (i < to && text.charAt(i) == '"') {
+                        value.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                fields.add(value.toString());
+                if (i == to) {
+                    return null;
+                }
+                if (text.charAt(i) != ',') {
+                    return "text after a closing quote";
+                }
+                i++;
+            } else {
+                int comma = text.indexOf(',', i);
+                int end = comma < 0 || comma >= to ? to : comma;
+                fields.add(text.substring(i, end));
+                if (end == to) {
+                    return null;
+                }
+                i = end + 1;
+            }
+        }
+    }
+
+    private static Person toPerson(List<String> fields, int[] columns) throws MalformedRowException {
+        String birthday = value(fields, columns, BIRTHDAY_COLUMN);
+        return new Person(
+                columns[ID_COLUMN] < 0 ? 0 : parseInt(ID, value(fields, columns, ID_COLUMN), false),
+                value(fields, columns, FIRST_NAME_COLUMN),
+                value(fields, columns, LAST_NAME_COLUMN),
+                value(fields, columns, STREET_COLUMN),
+                parseInt(POSTAL_CODE, value(fields, columns, POSTAL_CODE_COLUMN), true),
+                value(fields, columns, CITY_COLUMN),
+                birthday == null ? null : parseDate(birthday));
+    }
+
+    /**
+     * Returns the value of the column, null if it is empty or there is no such column.
+     */
+    private static String value(List<String> fields, int[] columns, int column) {
+        int field = columns[column];
+        if (field < 0) {
+            return null;
+        }
+        String value = fields.get(field);
+        return value.isEmpty() ? null : value;
+    }
+
+    private static int parseInt(String column, String value, boolean optional) throws MalformedRowException {
+        if (value == null) {
+            if (optional) {
+                return 0;
+            }
+            throw new MalformedRowException("missing " + column);
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new MalformedRowException("invalid " + column + " '" + value + "'");
+        }
+    }
+
+    /**
+     * Parses a date as shown in the app ({@link DateUtil#DATE_PATTERN}) or as ISO date, as the writer writes it.
+     * The first is tried first: it fails without an exception, cheaply also for ISO dates.
+     */
+    private static LocalDate parseDate(String value) throws MalformedRowException {
+        LocalDate date = DateUtil.parse(value);
+        if (date != null) {
+            return date;
+        }
+        try {
+            return LocalDate.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            throw new MalformedRowException("invalid " + BIRTHDAY + " '" + value + "'");
+        }
+    }
+
+    /**
+     * Persons and errors of one chunk; line numbers are counted from the start of the chunk.
+     */
+    private static final class Chunk {
+
+        final long end;
+        final List<Person> persons = new ArrayList<>();
+        final List<Integer> errorLines = new ArrayList<>();
+        final List<String> errors = new ArrayList<>();
+        int lineCount;
+
+        Chunk(long end) {
+            this.end = end;
+        }
+    }
+
+    /**
+     * Thrown while a row is converted, without a stack trace: it is only reported.
+     */
+    private static final class MalformedRowException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        MalformedRowException(String message) {
+            super(message, null, false, false);
+        }
+    }
+}
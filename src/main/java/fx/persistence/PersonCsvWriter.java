@@ -0,0 +1,155 @@
+package fx.persistence;
+
+import fx.model.Person;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static fx.persistence.PersonCsvReader.COLUMNS;
+
+/**
+ * Writes an address book as CSV in the layout read by {@link PersonCsvReader}: a header line and one line
+ * per person with the columns of {@link PersonCsvReader#COLUMNS}, birthdays as ISO dates.
+ * <p>
+ * Every line is encoded to UTF-8 straight into a direct buffer, which goes to the channel when it is
+ * full; no intermediate byte arrays or writers are involved. A value is quoted if it contains a comma or
+ * a quote. Line breaks cannot be read back, they are written as spaces. Like the other writers it writes
+ * to a temporary file that replaces the target only on commit.
+ */
+public class PersonCsvWriter implements PersonWriter {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final Path target;
+    private final Path tempFile;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final StringBuilder line = new StringBuilder(256);
+    private int count;
+    private boolean committed;
+
+    public PersonCsvWriter(File file) throws IOException {
+        this.target = file.toPath().toAbsolutePath();
+        this.tempFile = PersistenceFiles.temporaryFileFor(target);
+        this.channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        line.append(String.join(",", COLUMNS)).append('\n');
+        writeLine();
+    }
+
+    @Override
+    public void write(Person person) throws IOException {
+        line.append(person.getId()).append(',');
+        appendValue(person.getFirstName());
+        line.append(',');
+        appendValue(person.getLastName());
+        line.append(',');
+        appendValue(person.getStreet());
+        line.append(',').append(person.getPostalCode()).append(',');
+        appendValue(person.getCity());
+        line.append(',');
+        if (person.getBirthday() != null) {
+            line.append(person.getBirthday());
+        }
+        line.append('\n');
+        writeLine();
+        count++;
+    }
+
+    private void appendValue(String value) {
+        if (value == null) {
+            return;
+        }
+        boolean quoted = false;
+        for (int i = 0; i < value.length() && !quoted; i++) {
+            char c = value.charAt(i);
+            quoted = c == ',' || c == '"';
+        }
+        if (quoted) {
+            line.append('"');
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append("\"\"");
+            } else if (c == '\n' || c == '\r') {
+                line.append(' ');
+            } else {
+                line.append(c);
+            }
+        }
+        if (quoted) {
+            line.append('"');
+        }
+    }
+
+    /**
+     * Encodes the line into the buffer and clears it.
+     */
+    private void writeLine() throws IOException {
+        CharBuffer chars = CharBuffer.wrap(line);
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, true);
+            if (result.isOverflow()) {
+                flushBuffer();
+            } else if (result.isUnderflow()) {
+                break;
+            } else {
+                result.throwException();
+            }
+        }
+        // Every line is complete input, UTF-8 keeps no state between them.
+        encoder.reset();
+        line.setLength(0);
+    }
+
+    @Override
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Writes the rest of the buffer, forces the file to disk and atomically replaces the target with it.
+     */
+    @Override
+    public void commit() throws IOException {
+        flushBuffer();
+        channel.force(true);
+        channel.close();
+        PersistenceFiles.replace(tempFile, target);
+        committed = true;
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Releases the file. Without a preceding {@link #commit()} the temporary file is deleted
+     * and the target stays as it was.
+     */
+    @Override
+    public void close() throws IOException {
+        if (committed) {
+            return;
+        }
+        channel.close();
+        Files.deleteIfExists(tempFile);
+    }
+}
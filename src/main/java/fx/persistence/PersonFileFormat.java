@@ -0,0 +1,99 @@
+package fx.persistence;
+
+import fx.model.Person;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * File formats an address book can be stored in, recognized by the file extension.
+ */
+public enum PersonFileFormat {
+
+    XML("XML files (*.xml)", ".xml"),
+    BINARY("Binary snapshots (*.pbin)", ".pbin"),
+    CSV("CSV files (*.csv)", ".csv");
+
+    private final String description;
+    private final String extension;
+
+    PersonFileFormat(String description, String extension) {
+        this.description = description;
+        this.extension = extension;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Returns the extension including the dot, e.g. {@code ".xml"}.
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Returns the glob for file choosers, e.g. {@code "*.xml"}.
+     */
+    public String getPattern() {
+        return "*" + extension;
+    }
+
+    public boolean matches(File file) {
+        return file.getName().toLowerCase(Locale.ROOT).endsWith(extension);
+    }
+
+    /**
+     * Returns the format of the file by its extension; files with an unknown extension are read as XML.
+     */
+    public static PersonFileFormat forFile(File file) {
+        for (PersonFileFormat format : values()) {
+            if (format.matches(file)) {
+                return format;
+            }
+        }
+        return XML;
+    }
+
+    public PersonWriter createWriter(File file) throws IOException {
+        switch (this) {
+            case BINARY:
+                return new PersonBinaryWriter(file);
+            case CSV:
+                return new PersonCsvWriter(file);
+            default:
+                return new PersonXmlWriter(file);
+        }
+    }
+
+    /**
+     * Reads all persons of the file in batches of {@link PersonXmlReader#DEFAULT_BATCH_SIZE}, or one batch per
+     * chunk of a CSV file. Malformed CSV rows are skipped.
+     *
+     * @return the number of persons read
+     */
+    public int read(File file, Consumer<List<Person>> batchConsumer) throws IOException {
+        switch (this) {
+            case BINARY:
+                try (PersonBinaryFile binaryFile = PersonBinaryFile.open(file)) {
+                    return binaryFile.read(PersonXmlReader.DEFAULT_BATCH_SIZE, batchConsumer);
+                }
+            case CSV:
+                return new PersonCsvReader().read(file, batchConsumer);
+            default:
+                try (InputStream inputStream = new BufferedInputStream(new FileInputStream(file))) {
+                    return new PersonXmlReader().read(inputStream, batchConsumer);
+                } catch (XMLStreamException e) {
+                    throw new IOException(e);
+                }
+        }
+    }
+}
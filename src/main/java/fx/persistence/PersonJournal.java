@@ -0,0 +1,391 @@
+package fx.persistence;
+
+import fx.model.Person;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of changes next to an address book file ({@code <file>.journal}).
+ * <p>
+ * Every record is an upsert (all values of a person) or a delete, keyed by the person id. The header names
+ * the snapshot the records apply to by its size and modification time. A snapshot written later, by a save
+ * or a compaction that crashed before it could delete the journal, does not match; the journal is then
+ * stale and ignored, and the next append starts it over. Layout (all numbers big-endian):
+ * <pre>
+ * header   magic "PJNL", version, snapshot size, snapshot modification time in microseconds
+ * records  payload length, payload, CRC32 of the payload
+ * payload  operation, id[, first name, last name, street, city, postal code, birthday epoch day]
+ * </pre>
+ * Journals of version 1 have no snapshot in the header and are always applied.
+ * A record cut off by a crash fails its length or checksum check; it and everything after it is ignored
+ * when the journal is read, and cut off the file before the next append, so reading never changes it.
+ */
+public final class PersonJournal {
+
+    static final int MAGIC = 0x504A4E4C; // "PJNL"
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 24;
+    /* Версия 1: только magic и версия, без привязки к снимку */
+    private static final int HEADER_SIZE_V1 = 8;
+
+    /**
+     * Size in bytes above which the journal should be folded into a fresh snapshot.
+     */
+    public static final long COMPACTION_THRESHOLD = 4 * 1024 * 1024;
+
+    private static final byte UPSERT = 1;
+    private static final byte DELETE = 2;
+
+    /*
+     * Конец последней целой записи по каждому журналу (абсолютный путь), проверенный при чтении или
+     * последнем дописывании в этом процессе. Пока размер файла с ним совпадает, журнал не перечитывается.
+     */
+    private static final Map<File, Long> INTACT_ENDS = new ConcurrentHashMap<>();
+
+    private PersonJournal() {
+    }
+
+    public static File fileFor(File dataFile) {
+        return new File(dataFile.getPath() + ".journal");
+    }
+
+    /**
+     * Deletes the journal after a new snapshot of the file has been written. It no longer matches the
+     * snapshot and would be ignored anyway, so a failure is only reported.
+     */
+    static void deleteObsolete(File file) {
+        INTACT_ENDS.remove(fileFor(file).getAbsoluteFile());
+        try {
+            Files.deleteIfExists(fileFor(file).toPath());
+        } catch (IOException e) {
+            System.err.println("Could not delete obsolete journal of " + file + ": " + e);
+        }
+    }
+
+    /**
+     * Encodes the changes as journal records. Reads the values of the persons, so it has to run on the
+     * thread that owns them.
+     *
+     * @param changes the latest state per id, null values for deleted persons
+     */
+    static byte[] encode(Map<Integer, Person> changes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(changes.size() * 64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(128);
+        DataOutputStream payload = new DataOutputStream(payloadBytes);
+        CRC32 crc = new CRC32();
+
+        for (Map.Entry<Integer, Person> change : changes.entrySet()) {
+            payloadBytes.reset();
+            Person person = change.getValue();
+            if (person == null) {
+                payload.writeByte(DELETE);
+                payload.writeInt(change.getKey());
+            } else {
+                payload.writeByte(UPSERT);
+                payload.writeInt(person.getId());
+                writeString(payload, person.getFirstName());
+                writeString(payload, person.getLastName());
+                writeString(payload, person.getStreet());
+                writeString(payload, person.getCity());
+                payload.writeInt(person.getPostalCode());
+                payload.writeInt(PersonBinaryFile.toEpochDay(person.getBirthday()));
+            }
+            payload.flush();
+
+            crc.reset();
+            crc.update(payloadBytes.toByteArray(), 0, payloadBytes.size());
+            out.writeInt(payloadBytes.size());
+            payloadBytes.writeTo(out);
+            out.writeInt((int) crc.getValue());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Appends encoded records to the journal of the file and forces them to disk. A journal that does not
+     * belong to the file as it is now is started over, a damaged tail is cut off first. Only the header is
+     * read as long as the journal ends where the last read or append of this process left it; otherwise,
+     * after a failed append or a damaged tail, the records are checked again to find the last intact one.
+     *
+     * @return the size of the journal afterwards
+     */
+    static long append(File file, byte[] records) throws IOException {
+        File journal = fileFor(file);
+        // Unknown again until the append has succeeded.
+        Long intactEnd = INTACT_ENDS.remove(journal.getAbsoluteFile());
+        try (FileChannel channel = FileChannel.open(journal.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > 0) {
+                ByteBuffer header = ByteBuffer.wrap(readFully(channel, Math.min(HEADER_SIZE, size), journal));
+                if (!belongsTo(header, checkHeader(header, journal), file)) {
+                    System.err.println("Starting over stale journal " + journal);
+                    size = 0;
+                } else if (intactEnd == null || intactEnd != size) {
+                    byte[] bytes = readFully(channel, size, journal);
+                    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                    checkHeader(buffer, journal);
+                    size = readRecords(bytes, buffer, null);
+                    if (size < bytes.length) {
+                        System.err.println("Cutting off damaged journal tail of " + journal + " at " + size);
+                    }
+                }
+                channel.truncate(size);
+            }
+            if (size == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putInt(VERSION).putLong(file.length()).putLong(modified(file)).flip();
+                writeFully(channel, header, 0);
+                size = HEADER_SIZE;
+            }
+            writeFully(channel, ByteBuffer.wrap(records), size);
+            channel.force(false);
+            size += records.length;
+            INTACT_ENDS.put(journal.getAbsoluteFile(), size);
+            return size;
+        }
+    }
+
+    /**
+     * Reads the first bytes of the journal.
+     */
+    private static byte[] readFully(FileChannel channel, long length, File journal) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Journal too large: " + journal);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) length);
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+            // Reads until the buffer is full.
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Checks magic and version of the journal in the buffer and moves it to the first record.
+     *
+     * @return the version, 0 if the header was cut off by a crash while the journal was created
+     */
+    private static int checkHeader(ByteBuffer buffer, File journal) throws IOException {
+        if (buffer.remaining() >= 4 && buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a person journal: " + journal);
+        }
+        if (buffer.remaining() < HEADER_SIZE_V1) {
+            return 0;
+        }
+        int version = buffer.getInt(4);
+        if (version == 1) {
+            buffer.position(HEADER_SIZE_V1);
+            return version;
+        }
+        if (version != VERSION) {
+            throw new IOException("Unsupported journal version " + version + ": " + journal);
+        }
+        if (buffer.remaining() < HEADER_SIZE) {
+            return 0;
+        }
+        buffer.position(HEADER_SIZE);
+        return version;
+    }
+
+    /**
+     * Returns true if the journal with the header applies to the file as it is now.
+     */
+    private static boolean belongsTo(ByteBuffer header, int version, File file) throws IOException {
+        return version == 1
+                || version == VERSION && header.getLong(8) == file.length() && header.getLong(16) == modified(file);
+    }
+
+    /* File.lastModified() отбрасывает миллисекунды в Java 8 на Linux */
+    private static long modified(File file) throws IOException {
+        return Files.getLastModifiedTime(file.toPath()).to(TimeUnit.MICROSECONDS);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Reads the journal of the file and folds it into the latest state per id, in the order the ids first
+     * appear. A damaged tail is skipped but left in the file, see {@link #append}.
+     *
+     * @return the changes, empty if there is no journal or it is stale
+     */
+    static Map<Integer, Person> read(File file) throws IOException {
+        Map<Integer, Person> changes = new LinkedHashMap<>();
+        File journal = fileFor(file);
+        if (!journal.exists()) {
+            return changes;
+        }
+        byte[] bytes = Files.readAllBytes(journal.toPath());
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (!belongsTo(buffer, checkHeader(buffer, journal), file)) {
+            System.err.println("Ignoring stale journal " + journal);
+            return changes;
+        }
+        int end = readRecords(bytes, buffer, changes);
+        // The next append of this process need not check the records again, unless the tail is damaged.
+        INTACT_ENDS.put(journal.getAbsoluteFile(), (long) end);
+        if (end < bytes.length) {
+            System.err.println("Ignoring damaged journal tail of " + journal + " at " + end);
+        }
+        return changes;
+    }
+
+    /**
+     * Reads the records from the position of the buffer on, up to the first damaged one.
+     *
+     * @param changes where to fold the records into, null to only check them
+     * @return the end of the last intact record
+     */
+    private static int readRecords(byte[] bytes, ByteBuffer buffer, Map<Integer, Person> changes) throws IOException {
+        CRC32 crc = new CRC32();
+        while (buffer.remaining() >= 4) {
+            int length = buffer.getInt();
+            if (length <= 0 || buffer.remaining() < length + 4) {
+                return buffer.position() - 4;
+            }
+            int offset = buffer.position();
+            crc.reset();
+            crc.update(bytes, offset, length);
+            if (buffer.getInt(offset + length) != (int) crc.getValue()) {
+                return offset - 4;
+            }
+            if (changes != null) {
+                readRecord(new DataInputStream(new ByteArrayInputStream(bytes, offset, length)), changes);
+            }
+            buffer.position(offset + length + 4);
+        }
+        return buffer.position();
+    }
+
+    /**
+     * Reads an address book as the app sees it: the snapshot in batches with the journal replayed over it,
+     * followed by a batch of the persons only the journal contains.
+     *
+     * @return the number of persons read
+     */
+    public static int readWithChanges(File file, Consumer<List<Person>> batchConsumer) throws IOException {
+        Replay replay = new Replay(read(file));
+        int[] count = {0};
+        PersonFileFormat.forFile(file).read(file, batch -> {
+            List<Person> changed = replay.apply(batch);
+            count[0] += changed.size();
+            batchConsumer.accept(changed);
+        });
+        List<Person> added = replay.remaining();
+        if (!added.isEmpty()) {
+            count[0] += added.size();
+            batchConsumer.accept(added);
+        }
+        return count[0];
+    }
+
+    private static void readRecord(DataInputStream in, Map<Integer, Person> changes) throws IOException {
+        byte operation = in.readByte();
+        int id = in.readInt();
+        switch (operation) {
+            case UPSERT:
+                String firstName = readString(in);
+                String lastName = readString(in);
+                String street = readString(in);
+                String city = readString(in);
+                int postalCode = in.readInt();
+                LocalDate birthday = PersonBinaryFile.fromEpochDay(in.readInt());
+                changes.put(id, new Person(id, firstName, lastName, street, postalCode, city, birthday));
+                break;
+            case DELETE:
+                changes.put(id, null);
+                break;
+            default:
+                throw new IOException("Unknown journal operation " + operation);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Applies journal changes to a snapshot read in batches: persons of the snapshot are replaced or
+     * dropped as they pass, persons the snapshot does not contain are left for {@link #remaining()}.
+     */
+    static final class Replay {
+
+        private final Map<Integer, Person> changes;
+
+        Replay(Map<Integer, Person> changes) {
+            this.changes = new LinkedHashMap<>(changes);
+        }
+
+        /**
+         * Applies the changes to the batch in place and returns it.
+         */
+        List<Person> apply(List<Person> batch) {
+            if (changes.isEmpty()) {
+                return batch;
+            }
+            for (ListIterator<Person> iterator = batch.listIterator(); iterator.hasNext(); ) {
+                int id = iterator.next().getId();
+                if (changes.containsKey(id)) {
+                    Person changed = changes.remove(id);
+                    if (changed != null) {
+                        iterator.set(changed);
+                    } else {
+                        iterator.remove();
+                    }
+                }
+            }
+            return batch;
+        }
+
+        /**
+         * Drops the changes that have not been applied yet.
+         */
+        void discard() {
+            changes.clear();
+        }
+
+        /**
+         * Returns the persons added by the journal, to be appended after the snapshot.
+         */
+        List<Person> remaining() {
+            List<Person> added = new ArrayList<>(changes.size());
+            for (Person person : changes.values()) {
+                if (person != null) {
+                    added.add(person);
+                }
+            }
+            changes.clear();
+            return added;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package fx.persistence;
+
+import fx.model.Person;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes an address book person by person. Nothing is visible at the target until {@link #commit()};
+ * closing an uncommitted writer discards what was written and leaves the target as it was.
+ */
+public interface PersonWriter extends Closeable {
+
+    void write(Person person) throws IOException;
+
+    /**
+     * Returns the number of persons written so far.
+     */
+    int getCount();
+
+    /**
+     * Finishes the file and atomically replaces the target with it.
+     */
+    void commit() throws IOException;
+}
@@ -0,0 +1,171 @@
+package fx.persistence;
+
+import fx.model.Person;
+import util.DateUtil;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Streaming (StAX) reader for the address book XML written for {@link fx.model.PersonListWrapper}.
+ * <p>
+ * The document is never held in memory as a whole: {@code <person>} elements are parsed one at a
+ * time and handed to the caller in batches of a fixed size. Peak memory of a load is therefore
+ * about one batch plus whatever the caller keeps.
+ * <p>
+ * An instance is not thread-safe, use one reader per load.
+ */
+public class PersonXmlReader {
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    static final String PERSONS_ELEMENT = "persons";
+    static final String PERSON_ELEMENT = "person";
+    static final String ID_ELEMENT = "id";
+    static final String FIRST_NAME_ELEMENT = "firstName";
+    static final String LAST_NAME_ELEMENT = "lastName";
+    static final String STREET_ELEMENT = "street";
+    static final String POSTAL_CODE_ELEMENT = "postalCode";
+    static final String CITY_ELEMENT = "city";
+    static final String BIRTHDAY_ELEMENT = "birthday";
+
+    private final XMLInputFactory inputFactory;
+    private final int batchSize;
+
+    /* Формат Date.toString(), которым раньше сохранялись дни рождения */
+    private static final DateTimeFormatter LEGACY_DATE_FORMAT = DateTimeFormatter.ofPattern("EEE MMM dd HH:mm:ss zzz yyyy", Locale.US);
+
+    public PersonXmlReader() {
+        this(DEFAULT_BATCH_SIZE);
+    }
+
+    public PersonXmlReader(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.batchSize = batchSize;
+        this.inputFactory = XMLInputFactory.newInstance();
+        this.inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        this.inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        this.inputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    }
+
+    /**
+     * Reads all persons from the stream. Every full batch (and the last, possibly shorter one) is
+     * passed to the consumer on the calling thread; the consumer owns the list afterwards.
+     *
+     * @return the number of persons read
+     */
+    public int read(InputStream inputStream, Consumer<List<Person>> batchConsumer) throws XMLStreamException {
+        XMLStreamReader reader = inputFactory.createXMLStreamReader(inputStream);
+        try {
+            int count = 0;
+            List<Person> batch = new ArrayList<>(batchSize);
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && PERSON_ELEMENT.equals(reader.getLocalName())) {
+                    batch.add(readPerson(reader));
+                    count++;
+                    if (batch.size() == batchSize) {
+                        batchConsumer.accept(batch);
+                        batch = new ArrayList<>(batchSize);
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                batchConsumer.accept(batch);
+            }
+            return count;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Reads the children of the current {@code <person>} element and leaves the reader on its end tag.
+     */
+    private Person readPerson(XMLStreamReader reader) throws XMLStreamException {
+        int id = 0;
+        String firstName = null;
+        String lastName = null;
+        String street = null;
+        int postalCode = 0;
+        String city = null;
+        LocalDate birthday = null;
+
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case ID_ELEMENT:
+                    id = parseInt(reader);
+                    break;
+                case FIRST_NAME_ELEMENT:
+                    firstName = reader.getElementText();
+                    break;
+                case LAST_NAME_ELEMENT:
+                    lastName = reader.getElementText();
+                    break;
+                case STREET_ELEMENT:
+                    street = reader.getElementText();
+                    break;
+                case POSTAL_CODE_ELEMENT:
+                    postalCode = parseInt(reader);
+                    break;
+                case CITY_ELEMENT:
+                    city = reader.getElementText();
+                    break;
+                case BIRTHDAY_ELEMENT:
+                    birthday = parseDate(reader);
+                    break;
+                default:
+                    skipElement(reader);
+            }
+        }
+        return new Person(id, firstName, lastName, street, postalCode, city, birthday);
+    }
+
+    private int parseInt(XMLStreamReader reader) throws XMLStreamException {
+        String text = reader.getElementText().trim();
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new XMLStreamException("Not a number: " + text, reader.getLocation(), e);
+        }
+    }
+
+    private LocalDate parseDate(XMLStreamReader reader) throws XMLStreamException {
+        String text = reader.getElementText();
+        LocalDate date = DateUtil.parse(text);
+        if (date != null) {
+            return date;
+        }
+        try {
+            return LocalDate.parse(text.trim(), LEGACY_DATE_FORMAT);
+        } catch (DateTimeParseException e) {
+            throw new XMLStreamException("Not a date: " + text.trim(), reader.getLocation(), e);
+        }
+    }
+
+    /**
+     * Skips an unknown element together with everything nested in it.
+     */
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package fx.persistence;
+
+import fx.model.Person;
+import util.DateUtil;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static fx.persistence.PersonXmlReader.*;
+
+/**
+ * Streaming (StAX) writer for the address book XML, the counterpart of {@link PersonXmlReader}.
+ * <p>
+ * Persons are written one by one through a large buffer, so nothing but the buffer is allocated
+ * per save. The document goes to a temporary file next to the target, which replaces the target
+ * only in {@link #commit()}; a failed or abandoned save leaves the old file untouched.
+ * <pre>
+ * try (PersonXmlWriter writer = new PersonXmlWriter(file)) {
+ *     for (Person person : persons) {
+ *         writer.write(person);
+ *     }
+ *     writer.commit();
+ * }
+ * </pre>
+ */
+public class PersonXmlWriter implements PersonWriter {
+
+    private static final int BUFFER_SIZE = 128 * 1024;
+    /* Отступы как у JAXB_FORMATTED_OUTPUT */
+    private static final String PERSON_INDENT = "\n    ";
+    private static final String FIELD_INDENT = "\n        ";
+
+    private final Path target;
+    private final Path tempFile;
+    private final FileChannel channel;
+    private final Writer output;
+    private final XMLStreamWriter writer;
+    /* Буфер для даты, чтобы не создавать строку на каждую запись */
+    private final char[] dateBuffer = new char[DateUtil.DATE_LENGTH];
+    private int count;
+    private boolean committed;
+
+    public PersonXmlWriter(File file) throws IOException {
+        this.target = file.toPath().toAbsolutePath();
+        this.tempFile = PersistenceFiles.temporaryFileFor(target);
+        this.channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            this.output = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8), BUFFER_SIZE);
+            this.writer = XMLOutputFactory.newInstance().createXMLStreamWriter(output);
+
+            writer.writeStartDocument("UTF-8", "1.0");
+            writer.writeCharacters("\n");
+            writer.writeStartElement(PERSONS_ELEMENT);
+        } catch (XMLStreamException e) {
+            channel.close();
+            Files.deleteIfExists(tempFile);
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Saves the persons to the file in one go.
+     *
+     * @return the number of persons written
+     */
+    public static int write(Iterable<Person> persons, File file) throws IOException {
+        try (PersonXmlWriter writer = new PersonXmlWriter(file)) {
+            for (Person person : persons) {
+                writer.write(person);
+            }
+            writer.commit();
+            return writer.getCount();
+        }
+    }
+
+    @Override
+    public void write(Person person) throws IOException {
+        try {
+            writePerson(person);
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+        count++;
+    }
+
+    private void writePerson(Person person) throws XMLStreamException {
+        writer.writeCharacters(PERSON_INDENT);
+        writer.writeStartElement(PERSON_ELEMENT);
+        // Same element order as the JAXB marshaller.
+        if (person.getBirthday() != null) {
+            DateUtil.formatTo(person.getBirthday(), dateBuffer, 0);
+            writer.writeCharacters(FIELD_INDENT);
+            writer.writeStartElement(BIRTHDAY_ELEMENT);
+            writer.writeCharacters(dateBuffer, 0, dateBuffer.length);
+            writer.writeEndElement();
+        }
+        writeElement(CITY_ELEMENT, person.getCity());
+        writeElement(FIRST_NAME_ELEMENT, person.getFirstName());
+        writeElement(ID_ELEMENT, Integer.toString(person.getId()));
+        writeElement(LAST_NAME_ELEMENT, person.getLastName());
+        writeElement(POSTAL_CODE_ELEMENT, Integer.toString(person.getPostalCode()));
+        writeElement(STREET_ELEMENT, person.getStreet());
+        writer.writeCharacters(PERSON_INDENT);
+        writer.writeEndElement();
+    }
+
+    private void writeElement(String name, String value) throws XMLStreamException {
+        if (value == null) {
+            // JAXB omits null values as well.
+            return;
+        }
+        writer.writeCharacters(FIELD_INDENT);
+        writer.writeStartElement(name);
+        writer.writeCharacters(value);
+        writer.writeEndElement();
+    }
+
+    @Override
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Finishes the document, forces it to disk and atomically replaces the target file with it.
+     */
+    @Override
+    public void commit() throws IOException {
+        try {
+            writer.writeCharacters("\n");
+            writer.writeEndElement();
+            writer.writeEndDocument();
+            writer.flush();
+            writer.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+        output.flush();
+        channel.force(true);
+        output.close();
+
+        PersistenceFiles.replace(tempFile, target);
+        committed = true;
+    }
+
+    /**
+     * Releases the file. Without a preceding {@link #commit()} the temporary file is deleted
+     * and the target stays as it was.
+     */
+    @Override
+    public void close() throws IOException {
+        if (committed) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (XMLStreamException e) {
+            // The temporary file is thrown away anyway.
+        }
+        output.close();
+        Files.deleteIfExists(tempFile);
+    }
+}
@@ -0,0 +1,65 @@
+package fx.persistence;
+
+import fx.diagnostics.Metrics;
+import fx.diagnostics.FlightEvents;
+import fx.model.Person;
+import javafx.concurrent.Task;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Saves a snapshot of the address book in the background, in the format given by the file extension.
+ * A cancelled or failed save leaves the previous file untouched (see {@link PersonWriter}); a complete one makes the
+ * {@link PersonJournal} of the file obsolete and deletes it; one left behind by a crash is ignored, as it no longer
+ * matches the file. The value of the task is the number of persons saved.
+ */
+public class SavePersonsTask extends Task<Integer> {
+
+    private static final int PROGRESS_STEP = 1000;
+
+    private final List<Person> persons;
+    private final File file;
+
+    /**
+     * @param persons snapshot of the persons to save, must not be changed while the task runs
+     */
+    public SavePersonsTask(List<Person> persons, File file) {
+        this.persons = persons;
+        this.file = file;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    protected Integer call() throws Exception {
+        int total = persons.size();
+        updateMessage("Saving " + file.getName() + "...");
+        long start = System.nanoTime();
+        FlightEvents.IoSpan event = FlightEvents.persistence("save", file);
+        boolean succeeded = false;
+
+        try (PersonWriter writer = PersonFileFormat.forFile(file).createWriter(file)) {
+            for (Person person : persons) {
+                writer.write(person);
+                if (writer.getCount() % PROGRESS_STEP == 0) {
+                    if (isCancelled()) {
+                        return writer.getCount();
+                    }
+                    updateProgress(writer.getCount(), total);
+                }
+            }
+            writer.commit();
+            succeeded = true;
+        } finally {
+            event.complete(file.length(), total, succeeded);
+        }
+        PersonJournal.deleteObsolete(file);
+        Metrics.recordTransfer("persistence.save", start, file.length(), total);
+        updateProgress(total, total);
+        updateMessage("Saved " + total + " persons to " + file.getName());
+        return total;
+    }
+}
@@ -1,21 +1,25 @@
 package fx.view;
 
-import fx.model.Person;
+import fx.model.BirthdayHistogram;
+import fx.model.PersonStatistics;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.chart.BarChart;
 import javafx.scene.chart.CategoryAxis;
 import javafx.scene.chart.XYChart;
+import javafx.scene.control.Label;
 
 import java.text.DateFormatSymbols;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Calendar;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 
 /**
- * The controller for the birthday statistics view.
+ * The controller for the statistics view: the birthday chart, which follows every change, and the charts of
+ * {@link PersonStatistics}, which show the results of the last aggregation.
  */
 public class BirthdayStatisticsController {
 
@@ -25,6 +29,17 @@ public class BirthdayStatisticsController {
     @FXML
     private CategoryAxis xAxis;
 
+    @FXML
+    private BarChart<String, Number> ageChart;
+    @FXML
+    private BarChart<String, Number> postalCodeChart;
+    @FXML
+    private BarChart<String, Number> cityChart;
+    @FXML
+    private BarChart<String, Number> lastNameChart;
+    @FXML
+    private Label statusLabel;
+
     private ObservableList<String> monthNames = FXCollections.observableArrayList();
 
     /**
@@ -44,30 +59,72 @@ public class BirthdayStatisticsController {
     }
 
     /**
-     * Sets the persons to show the statistics for.
+     * Sets the histogram to show. The chart is bound to it and follows its changes while the dialog is open.
      */
-    public void setPersonData(List<Person> persons) {
-        long timeStart = System.currentTimeMillis();
-
-        // Count the number of people having their birthday in a specific month.
-        int[] monthCounter = new int[12];
-        for (Person p : persons) {
-            Calendar calendar = Calendar.getInstance();
-            calendar.setTime(p.getBirthday());
-            int month = calendar.get(Calendar.MONTH);
-            monthCounter[month]++;
-        }
-
+    public void setHistogram(BirthdayHistogram histogram) {
         XYChart.Series<String, Integer> series = new XYChart.Series<>();
 
         // Create a XYChart.Data object for each month. Add it to the series.
-        for (int i = 0; i < monthCounter.length; i++) {
-            series.getData().add(new XYChart.Data<>(monthNames.get(i), monthCounter[i]));
+        for (int i = 0; i < BirthdayHistogram.MONTHS; i++) {
+            XYChart.Data<String, Integer> data = new XYChart.Data<>(monthNames.get(i), histogram.getMonthCount(i));
+            data.YValueProperty().bind(histogram.monthCountProperty(i).asObject());
+            series.getData().add(data);
         }
 
         barChart.getData().add(series);
+    }
+
+    /**
+     * Shows that the statistics are being computed; the charts keep the last results until they are ready.
+     */
+    public void showComputing(int personCount) {
+        statusLabel.setText("Computing statistics of " + personCount + " persons...");
+    }
+
+    /**
+     * Shows the statistics in the chart tabs.
+     */
+    public void setStatistics(PersonStatistics statistics) {
+        List<XYChart.Data<String, Number>> ageBands = new ArrayList<>();
+        for (int band = 0; band < PersonStatistics.AGE_BANDS; band++) {
+            ageBands.add(new XYChart.Data<>(PersonStatistics.getAgeBandName(band), statistics.getAgeBandCount(band)));
+        }
+        showData(ageChart, ageBands);
+
+        // Only the prefixes that occur, there are up to a hundred.
+        List<XYChart.Data<String, Number>> postalPrefixes = new ArrayList<>();
+        for (int prefix = 0; prefix < PersonStatistics.POSTAL_PREFIXES; prefix++) {
+            if (statistics.getPostalPrefixCount(prefix) > 0) {
+                postalPrefixes.add(new XYChart.Data<>(PersonStatistics.getPostalPrefixName(prefix),
+                        statistics.getPostalPrefixCount(prefix)));
+            }
+        }
+        if (statistics.getLongPostalCodeCount() > 0) {
+            postalPrefixes.add(new XYChart.Data<>(">" + PersonStatistics.MAX_POSTAL_CODE, statistics.getLongPostalCodeCount()));
+        }
+        showData(postalCodeChart, postalPrefixes);
+
+        showData(cityChart, toData(statistics.getTopCities()));
+        showData(lastNameChart, toData(statistics.getTopLastNames()));
 
-        long timeFinish = System.currentTimeMillis();
-        System.out.println(timeFinish - timeStart + "ms calculating birthday statistics");
+        statusLabel.setText(String.format("%d persons, %d without birthday, %d cities, %d last names (computed in %d ms)",
+                statistics.getPersonCount(), statistics.getNoBirthdayCount(), statistics.getCityCount(),
+                statistics.getLastNameCount(), statistics.getElapsedNanos() / 1_000_000));
+    }
+
+    private static List<XYChart.Data<String, Number>> toData(List<PersonStatistics.Count> counts) {
+        List<XYChart.Data<String, Number>> data = new ArrayList<>(counts.size());
+        for (PersonStatistics.Count count : counts) {
+            data.add(new XYChart.Data<>(count.getKey(), count.getCount()));
+        }
+        return data;
+    }
+
+    /**
+     * Replaces the series of the chart. The categories of the axis follow the data.
+     */
+    private static void showData(BarChart<String, Number> chart, List<XYChart.Data<String, Number>> data) {
+        XYChart.Series<String, Number> series = new XYChart.Series<>(FXCollections.observableArrayList(data));
+        chart.getData().setAll(Collections.singletonList(series));
     }
 }
@@ -0,0 +1,193 @@
+package fx.view;
+
+import fx.diagnostics.FlightRecording;
+import fx.diagnostics.MetricSnapshot;
+import fx.diagnostics.Metrics;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.fxml.FXML;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.stage.FileChooser;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Окно диагностики: текущие значения {@link Metrics}, обновляются раз в секунду, пока окно открыто
+ */
+public class DiagnosticsController {
+
+    private static final Duration REFRESH_INTERVAL = Duration.seconds(1);
+
+    @FXML
+    private TableView<MetricSnapshot> metricsTable;
+    @FXML
+    private TableColumn<MetricSnapshot, String> nameColumn;
+    @FXML
+    private TableColumn<MetricSnapshot, String> countColumn;
+    @FXML
+    private TableColumn<MetricSnapshot, String> meanColumn;
+    @FXML
+    private TableColumn<MetricSnapshot, String> p50Column;
+    @FXML
+    private TableColumn<MetricSnapshot, String> p95Column;
+    @FXML
+    private TableColumn<MetricSnapshot, String> p99Column;
+    @FXML
+    private TableColumn<MetricSnapshot, String> maxColumn;
+    @FXML
+    private TableColumn<MetricSnapshot, String> totalColumn;
+    @FXML
+    private Button dumpRecordingButton;
+
+    private Stage dialogStage;
+    private final Timeline refreshTimeline = new Timeline(new KeyFrame(REFRESH_INTERVAL, event -> refresh()));
+
+    @FXML
+    private void initialize() {
+        nameColumn.setCellValueFactory(cellData -> new ReadOnlyStringWrapper(cellData.getValue().getName()));
+        countColumn.setCellValueFactory(cellData -> new ReadOnlyStringWrapper(Long.toString(cellData.getValue().getCount())));
+        bindHistogramColumn(meanColumn, MetricSnapshot::getMean);
+        bindHistogramColumn(p50Column, MetricSnapshot::getP50);
+        bindHistogramColumn(p95Column, MetricSnapshot::getP95);
+        bindHistogramColumn(p99Column, MetricSnapshot::getP99);
+        bindHistogramColumn(maxColumn, MetricSnapshot::getMax);
+        bindHistogramColumn(totalColumn, MetricSnapshot::getSum);
+        refreshTimeline.setCycleCount(Animation.INDEFINITE);
+        // The recording is started by a command line flag only.
+        dumpRecordingButton.setDisable(!FlightRecording.isRunning());
+    }
+
+    /**
+     * Counters have no distribution, their histogram columns stay empty.
+     */
+    private static void bindHistogramColumn(TableColumn<MetricSnapshot, String> column, Function<MetricSnapshot, Number> value) {
+        column.setCellValueFactory(cellData -> {
+            MetricSnapshot snapshot = cellData.getValue();
+            if (snapshot.getType() != MetricSnapshot.Type.HISTOGRAM || snapshot.getCount() == 0) {
+                return new ReadOnlyStringWrapper("");
+            }
+            return new ReadOnlyStringWrapper(snapshot.getUnit().format(value.apply(snapshot).doubleValue()));
+        });
+    }
+
+    /**
+     * Sets the stage of the window and refreshes the values while it is showing.
+     */
+    public void setDialogStage(Stage dialogStage) {
+        this.dialogStage = dialogStage;
+        dialogStage.setOnShown(event -> {
+            refresh();
+            refreshTimeline.play();
+        });
+        dialogStage.setOnHidden(event -> refreshTimeline.stop());
+    }
+
+    private void refresh() {
+        List<MetricSnapshot> shown = new ArrayList<>();
+        for (MetricSnapshot snapshot : Metrics.snapshot()) {
+            if (snapshot.hasValues()) {
+                shown.add(snapshot);
+            }
+        }
+        // The rows are new objects every time, the selection is kept by name.
+        MetricSnapshot selected = metricsTable.getSelectionModel().getSelectedItem();
+        metricsTable.getItems().setAll(shown);
+        if (selected != null) {
+            for (MetricSnapshot snapshot : shown) {
+                if (snapshot.getName().equals(selected.getName())) {
+                    metricsTable.getSelectionModel().select(snapshot);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Called when the user clicks reset.
+     */
+    @FXML
+    private void handleReset() {
+        Metrics.reset();
+        refresh();
+    }
+
+    /**
+     * Opens a FileChooser and writes the current values to the chosen CSV file.
+     */
+    @FXML
+    private void handleExport() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV files (*.csv)", "*.csv"));
+        fileChooser.setInitialFileName("metrics.csv");
+
+        File file = fileChooser.showSaveDialog(dialogStage);
+        if (file == null) {
+            return;
+        }
+        if (!file.getName().contains(".")) {
+            file = new File(file.getPath() + ".csv");
+        }
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            Metrics.writeCsv(writer);
+        } catch (IOException e) {
+            e.printStackTrace();
+            showWriteError("Could not export metrics", file);
+        }
+    }
+
+    /**
+     * Opens a FileChooser and writes the events of the running flight recording to the chosen file,
+     * to be opened in JDK Mission Control.
+     */
+    @FXML
+    private void handleDumpRecording() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Flight recordings (*.jfr)", "*.jfr"));
+        fileChooser.setInitialFileName("persons-app.jfr");
+
+        File file = fileChooser.showSaveDialog(dialogStage);
+        if (file == null) {
+            return;
+        }
+        if (!file.getName().contains(".")) {
+            file = new File(file.getPath() + ".jfr");
+        }
+        try {
+            FlightRecording.dump(file.toPath());
+        } catch (IOException e) {
+            e.printStackTrace();
+            showWriteError("Could not dump the flight recording", file);
+        }
+    }
+
+    private void showWriteError(String header, File file) {
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.initOwner(dialogStage);
+        alert.setTitle("Error");
+        alert.setHeaderText(header);
+        alert.setContentText("Could not write file:\n" + file.getPath());
+        alert.showAndWait();
+    }
+
+    /**
+     * Called when the user clicks close.
+     */
+    @FXML
+    private void handleClose() {
+        dialogStage.close();
+    }
+}
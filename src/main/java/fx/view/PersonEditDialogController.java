@@ -6,8 +6,7 @@ import javafx.scene.control.Alert;
 import javafx.scene.control.TextField;
 import javafx.stage.Stage;
 import org.apache.commons.lang3.ObjectUtils;
-
-import java.text.ParseException;
+import util.DateUtil;
 
 /**
  * Окно редактирования Person
@@ -47,17 +46,19 @@ public class PersonEditDialogController {
     }
 
     /**
-     * Sets the person to be edited in the dialog.
+     * Sets the person to be edited in the dialog. The dialog is reused, so this also resets the result
+     * of the previous editing.
      */
     public void setPerson(Person person) {
         this.person = person;
+        this.okClicked = false;
 
         firstNameField.setText(person.getFirstName());
         lastNameField.setText(person.getLastName());
         streetField.setText(person.getStreet());
         postalCodeField.setText(Integer.toString(person.getPostalCode()));
         cityField.setText(person.getCity());
-        birthdayField.setText(Person.DATE_FORMATTER.format(person.getBirthday()));
+        birthdayField.setText(DateUtil.format(person.getBirthday()));
         birthdayField.setPromptText("dd.mm.yyyy");
     }
 
@@ -79,11 +80,7 @@ public class PersonEditDialogController {
             person.setStreet(streetField.getText());
             person.setPostalCode(Integer.parseInt(postalCodeField.getText()));
             person.setCity(cityField.getText());
-            try {
-                person.setBirthday(Person.DATE_FORMATTER.parse(birthdayField.getText()));
-            } catch (ParseException e) {
-                e.printStackTrace();
-            }
+            person.setBirthday(DateUtil.parse(birthdayField.getText()));
 
             okClicked = true;
             dialogStage.close();
@@ -133,9 +130,7 @@ public class PersonEditDialogController {
         if (ObjectUtils.isEmpty(birthdayField.getText())) {
             errorMessage += "No valid birthday!\n";
         } else {
-            try {
-                Person.DATE_FORMATTER.parse(birthdayField.getText());
-            } catch (ParseException e) {
+            if (!DateUtil.validDate(birthdayField.getText())) {
                 errorMessage += "No valid birthday. Use the format dd.mm.yyyy!\n";
             }
         }
@@ -1,19 +1,59 @@
 package fx.view;
 
 import fx.Main;
+import fx.diagnostics.Histogram;
+import fx.diagnostics.Metrics;
 import fx.model.Person;
+import fx.model.PersonList;
+import fx.model.PersonNameIndex;
+import javafx.animation.PauseTransition;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.SortedList;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
+import javafx.scene.control.ButtonType;
 import javafx.scene.control.Label;
+import javafx.scene.control.SelectionMode;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
+import javafx.util.Callback;
+import javafx.util.Duration;
+import util.DateUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 /**
  * Окно просмотра Person
  */
 public class PersonOverviewController {
 
+    /* Поиск запускается после паузы в наборе, а не на каждое нажатие клавиши */
+    private static final Duration SEARCH_DELAY = Duration.millis(250);
+
     private Main mainApp;
+    private SortedList<Person> sortedData;
+    /* Результаты поиска из индекса имён; таблица показывает их вместо всех записей, пока запрос не пуст */
+    private final PersonList searchResults = new PersonList();
+    private SortedList<Person> sortedResults;
+    private PersonNameIndex.Query searchQuery;
+    /* Таблица показывает снимок, открытый для просмотра, а не personData */
+    private boolean browsing;
+    private Callback<TableView<Person>, Boolean> defaultSortPolicy;
+    private final PauseTransition searchDelay = new PauseTransition(SEARCH_DELAY);
+    private final Histogram filterTimer = Metrics.timer("table.filter.time");
+    private final Histogram refreshTimer = Metrics.timer("table.refresh.time");
+    /* Начало обработки изменения personData, см. setMainApp */
+    private long refreshStart;
+
+    @FXML
+    private TextField searchField;
 
     @FXML
     private TableView<Person> personTable;
@@ -45,14 +85,103 @@ public class PersonOverviewController {
         lastNameColumn.setCellValueFactory(cellData -> cellData.getValue().lastNameProperty());
         /* Очищаем значения таблицы Person Details */
         showPersonDetails(null);
+        personTable.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
         personTable.getSelectionModel().selectedItemProperty().addListener((observable, oldValue, newValue) -> showPersonDetails(newValue));
+        defaultSortPolicy = personTable.getSortPolicy();
+
+        searchDelay.setOnFinished(event -> applySearch());
+        searchField.textProperty().addListener((observable, oldValue, newValue) -> searchDelay.playFromStart());
     }
 
     public void setMainApp(Main mainApp) {
         this.mainApp = mainApp;
 
-        // Add observable list data to the table
-        personTable.setItems(mainApp.getPersonData());
+        // Listeners of a list run in the order they were added and the sorted list passes a change on to the
+        // table before it returns, so the two listeners around it time the whole update.
+        mainApp.getPersonData().addListener((ListChangeListener<Person>) change -> refreshStart = System.nanoTime());
+
+        // Add observable list data to the table, sorted by the table columns.
+        sortedData = new SortedList<>(mainApp.getPersonData());
+        sortedData.comparatorProperty().bind(personTable.comparatorProperty());
+        sortedResults = new SortedList<>(searchResults);
+        sortedResults.comparatorProperty().bind(personTable.comparatorProperty());
+        personTable.setItems(sortedData);
+        mainApp.getPersonData().addListener(this::updateSearchResults);
+
+        mainApp.getPersonData().addListener((ListChangeListener<Person>) change -> refreshTimer.recordSince(refreshStart));
+    }
+
+    /**
+     * Shows the rows of a snapshot opened for browsing in file order. The search and sorting by a column
+     * are turned off, both would read every row.
+     */
+    public void showBrowsedData(ObservableList<Person> rows) {
+        browsing = true;
+        searchDelay.stop();
+        searchField.setDisable(true);
+        personTable.getSortOrder().clear();
+        // A policy that fails makes the table undo the click on the column header.
+        personTable.setSortPolicy(table -> false);
+        personTable.setItems(rows);
+    }
+
+    /**
+     * Shows the persons of the application again after {@link #showBrowsedData}.
+     */
+    public void showPersonData() {
+        if (!browsing) {
+            return;
+        }
+        browsing = false;
+        personTable.setItems(searchQuery != null ? sortedResults : sortedData);
+        personTable.setSortPolicy(defaultSortPolicy);
+        searchField.setDisable(false);
+    }
+
+    /**
+     * Shows only the persons matching the search field. The matches are looked up in the name index and
+     * become the list under the table; the names of all persons are compared only for an empty query,
+     * which shows the whole list again.
+     */
+    private void applySearch() {
+        long start = System.nanoTime();
+        searchQuery = mainApp.getPersonNameIndex().createQuery(searchField.getText());
+        if (searchQuery == null) {
+            searchResults.clear();
+            personTable.setItems(sortedData);
+        } else {
+            searchResults.setAll(searchQuery.findMatches());
+            personTable.setItems(sortedResults);
+        }
+        filterTimer.recordSince(start);
+    }
+
+    /**
+     * Keeps the search results in step with the persons of the application: removed persons leave them,
+     * added ones are compared with the query.
+     */
+    private void updateSearchResults(ListChangeListener.Change<? extends Person> change) {
+        if (searchQuery == null) {
+            return;
+        }
+        Set<Person> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Person> added = new ArrayList<>();
+        while (change.next()) {
+            if (change.wasRemoved()) {
+                removed.addAll(change.getRemoved());
+            }
+            if (change.wasAdded()) {
+                for (Person person : change.getAddedSubList()) {
+                    if (searchQuery.test(person)) {
+                        added.add(person);
+                    }
+                }
+            }
+        }
+        if (!removed.isEmpty()) {
+            searchResults.removeAll(removed);
+        }
+        searchResults.addAll(added);
     }
 
     private void showPersonDetails(Person person) {
@@ -63,7 +192,7 @@ public class PersonOverviewController {
             postalCodeLabel.setText(Integer.toString(person.getPostalCode()));
             cityLabel.setText(person.getCity());
             try {
-                birthdayLabel.setText(Person.DATE_FORMATTER.format(person.getBirthday()));
+                birthdayLabel.setText(DateUtil.format(person.getBirthday()));
             } catch (Exception e) {
                 System.err.println("Invalid date found: " + person.getBirthday());
                 birthdayLabel.setText("Invalid date");
@@ -79,15 +208,30 @@ public class PersonOverviewController {
     }
 
     /**
-     * Called when the user clicks on the delete button.
+     * Called when the user clicks on the delete button. Deletes all selected persons at once, after asking
+     * if there is more than one.
      */
     @FXML
     private void handleDeletePerson() {
-        int selectedIndex = personTable.getSelectionModel().getSelectedIndex();
-        if (selectedIndex >= 0) {
-            Person person = personTable.getItems().remove(selectedIndex);
-            System.out.println(String.format("Deleting №%d - %s", selectedIndex, person));
-            personTable.getItems().remove(person);
+        if (browsing) {
+            showFixedSizeWarning();
+            return;
+        }
+        // Copied, the selection changes while the persons are removed.
+        List<Person> selected = new ArrayList<>(personTable.getSelectionModel().getSelectedItems());
+        if (!selected.isEmpty()) {
+            if (selected.size() > 1) {
+                Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+                alert.initOwner(mainApp.getPrimaryStage());
+                alert.setTitle("Delete persons");
+                alert.setHeaderText("Delete " + selected.size() + " persons?");
+                Optional<ButtonType> answer = alert.showAndWait();
+                if (!answer.isPresent() || answer.get() != ButtonType.OK) {
+                    return;
+                }
+            }
+            // The table shows a filtered and sorted view, the persons are removed from the source list.
+            mainApp.removePersons(selected);
         } else {
             Alert alert = new Alert(Alert.AlertType.WARNING);
             alert.initOwner(mainApp.getPrimaryStage());
@@ -104,6 +248,10 @@ public class PersonOverviewController {
      */
     @FXML
     private void handleNewPerson() {
+        if (browsing) {
+            showFixedSizeWarning();
+            return;
+        }
         Person tempPerson = new Person();
         boolean okClicked = mainApp.showPersonEditDialog(tempPerson);
         if (okClicked) {
@@ -119,9 +267,16 @@ public class PersonOverviewController {
     private void handleEditPerson() {
         Person selectedPerson = personTable.getSelectionModel().getSelectedItem();
         if (selectedPerson != null) {
-            boolean okClicked = mainApp.showPersonEditDialog(selectedPerson);
-            if (okClicked) {
-                showPersonDetails(selectedPerson);
+            // The edited person replaces the selected one while a background task reads the persons.
+            Person editedPerson = mainApp.editPerson(selectedPerson);
+            if (editedPerson != null) {
+                showPersonDetails(editedPerson);
+                if (!browsing && searchQuery != null && !searchQuery.test(editedPerson)) {
+                    // The results are not told about edits, a person whose name no longer matches leaves them.
+                    searchResults.remove(editedPerson);
+                } else if (editedPerson != selectedPerson) {
+                    personTable.getSelectionModel().select(editedPerson);
+                }
             }
 
         } else {
@@ -135,4 +290,13 @@ public class PersonOverviewController {
             alert.showAndWait();
         }
     }
+
+    private void showFixedSizeWarning() {
+        Alert alert = new Alert(Alert.AlertType.WARNING);
+        alert.initOwner(mainApp.getPrimaryStage());
+        alert.setTitle("Browsing");
+        alert.setHeaderText("Persons cannot be added or deleted while browsing");
+        alert.setContentText("Persons can only be edited. Open the file to add or delete persons.");
+        alert.showAndWait();
+    }
 }
@@ -1,12 +1,22 @@
 package fx.view;
 
 import fx.Main;
+import fx.persistence.PersonFileFormat;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.concurrent.Worker;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.ProgressBar;
 import javafx.stage.FileChooser;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * The controller for the root layout. The root layout provides the basic
@@ -17,8 +27,65 @@ public class RootLayoutController {
 
     private Main mainApp;
 
+    @FXML
+    private Label statusLabel;
+    @FXML
+    private ProgressBar progressBar;
+    @FXML
+    private Button cancelButton;
+    @FXML
+    private MenuItem saveMenuItem;
+    @FXML
+    private MenuItem saveAsMenuItem;
+
+    /* Задача, прогресс которой сейчас показан в строке состояния */
+    private Task<?> shownTask;
+
     public void setMainApp(Main mainApp) {
         this.mainApp = mainApp;
+        // A file that is still loading cannot be saved, see Main.savePersonDataToFile.
+        saveMenuItem.disableProperty().bind(mainApp.loadingProperty());
+        saveAsMenuItem.disableProperty().bind(mainApp.loadingProperty());
+    }
+
+    /**
+     * Shows the message and progress of a background task in the status bar until it finishes.
+     * A task shown later takes the status bar over.
+     */
+    public void showProgress(Task<?> task) {
+        shownTask = task;
+        statusLabel.textProperty().bind(task.messageProperty());
+        progressBar.progressProperty().bind(task.progressProperty());
+        progressBar.setVisible(true);
+        cancelButton.setVisible(true);
+
+        task.stateProperty().addListener((observable, oldState, newState) -> {
+            if (task != shownTask) {
+                return;
+            }
+            if (newState == Worker.State.SUCCEEDED || newState == Worker.State.FAILED || newState == Worker.State.CANCELLED) {
+                statusLabel.textProperty().unbind();
+                progressBar.progressProperty().unbind();
+                progressBar.setVisible(false);
+                cancelButton.setVisible(false);
+                shownTask = null;
+                if (newState == Worker.State.FAILED) {
+                    statusLabel.setText("Failed: " + statusLabel.getText());
+                } else if (newState == Worker.State.CANCELLED) {
+                    statusLabel.setText("Cancelled: " + statusLabel.getText());
+                }
+            }
+        });
+    }
+
+    /**
+     * Called when the user clicks cancel in the status bar.
+     */
+    @FXML
+    private void handleCancelTask() {
+        if (shownTask != null) {
+            shownTask.cancel();
+        }
     }
 
     /**
@@ -26,8 +93,7 @@ public class RootLayoutController {
      */
     @FXML
     private void handleNew() {
-        mainApp.getPersonData().clear();
-        mainApp.setPersonFilePath(null);
+        mainApp.newPersonData();
     }
 
     /**
@@ -37,9 +103,13 @@ public class RootLayoutController {
     private void handleOpen() {
         FileChooser fileChooser = new FileChooser();
 
-        // Set extension filter
-        FileChooser.ExtensionFilter extensionFilter = new FileChooser.ExtensionFilter("XML files (*.xml)", "*.xml");
-        fileChooser.getExtensionFilters().add(extensionFilter);
+        // Set extension filters, the first one accepts every supported format
+        List<String> patterns = new ArrayList<>();
+        for (PersonFileFormat format : PersonFileFormat.values()) {
+            patterns.add(format.getPattern());
+        }
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Address books", patterns));
+        fileChooser.getExtensionFilters().addAll(createExtensionFilters());
 
         // Show open file dialog
         File file = fileChooser.showOpenDialog(mainApp.getPrimaryStage());
@@ -49,13 +119,30 @@ public class RootLayoutController {
         }
     }
 
+    /**
+     * Opens a FileChooser to let the user select a binary snapshot to browse without loading it.
+     */
+    @FXML
+    private void handleBrowse() {
+        FileChooser fileChooser = new FileChooser();
+        PersonFileFormat format = PersonFileFormat.BINARY;
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter(format.getDescription(), format.getPattern()));
+
+        File file = fileChooser.showOpenDialog(mainApp.getPrimaryStage());
+
+        if (file != null) {
+            mainApp.browsePersonFile(file);
+        }
+    }
+
     /**
      * Saves the file to the person file that is currently open.
-     * If there is no open file, the "save as" dialog is shown.
+     * If there is no open file, the "save as" dialog is shown. A browsed snapshot is always saved with
+     * "save as", the open person file is the one opened before.
      */
     @FXML
     private void handleSave() {
-        File personFile = mainApp.getPersonFilePath();
+        File personFile = mainApp.isBrowsing() ? null : mainApp.getPersonFilePath();
         if (personFile != null) {
             mainApp.savePersonDataToFile(personFile);
         } else {
@@ -70,23 +157,40 @@ public class RootLayoutController {
     private void handleSaveAs() {
         FileChooser fileChooser = new FileChooser();
 
-        // Set extension filter
-        FileChooser.ExtensionFilter extensionFilter = new FileChooser.ExtensionFilter("XML files (*.xml)", "*.xml");
-        fileChooser.getExtensionFilters().add(extensionFilter);
+        // Set extension filters, one per format
+        List<FileChooser.ExtensionFilter> extensionFilters = createExtensionFilters();
+        fileChooser.getExtensionFilters().addAll(extensionFilters);
         fileChooser.setInitialFileName("Persons");
 
         // Show save file dialog
         File file = fileChooser.showSaveDialog(mainApp.getPrimaryStage());
 
         if (file != null) {
-            // Make sure it has the correct extension
-            if (!file.getPath().endsWith(".xml")) {
-                file = new File(file.getPath() + ".xml");
+            // Make sure it has the extension of a supported format, the one of the chosen filter by default
+            boolean hasKnownExtension = false;
+            for (PersonFileFormat format : PersonFileFormat.values()) {
+                hasKnownExtension |= format.matches(file);
+            }
+            if (!hasKnownExtension) {
+                int selectedIndex = extensionFilters.indexOf(fileChooser.getSelectedExtensionFilter());
+                PersonFileFormat format = PersonFileFormat.values()[Math.max(selectedIndex, 0)];
+                file = new File(file.getPath() + format.getExtension());
             }
             mainApp.savePersonDataToFile(file);
         }
     }
 
+    /**
+     * Creates one extension filter per supported file format, in the order of {@link PersonFileFormat#values()}.
+     */
+    private static List<FileChooser.ExtensionFilter> createExtensionFilters() {
+        List<FileChooser.ExtensionFilter> extensionFilters = new ArrayList<>();
+        for (PersonFileFormat format : PersonFileFormat.values()) {
+            extensionFilters.add(new FileChooser.ExtensionFilter(format.getDescription(), format.getPattern()));
+        }
+        return extensionFilters;
+    }
+
     /**
      * Opens the birthday statistics.
      */
@@ -95,6 +199,22 @@ public class RootLayoutController {
         mainApp.showBirthdayStatistics();
     }
 
+    /**
+     * Looks for duplicate persons.
+     */
+    @FXML
+    private void handleFindDuplicates() {
+        mainApp.findDuplicates();
+    }
+
+    /**
+     * Opens the diagnostics window.
+     */
+    @FXML
+    private void handleShowDiagnostics() {
+        mainApp.showDiagnostics();
+    }
+
     /**
      * Opens an about dialog.
      */
@@ -113,6 +233,7 @@ public class RootLayoutController {
      */
     @FXML
     private void handleExit() {
-        System.exit(0);
+        // Let Main.stop() save pending changes first.
+        Platform.exit();
     }
 }
@@ -0,0 +1,132 @@
+package util;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Helper functions for handling dates in the dd.MM.yyyy format used throughout the app.
+ * <p>
+ * Everything here is immutable and stateless, so it can be shared by any number of threads without
+ * locking. The hand-written parser and printer avoid the pattern machinery of {@link DateTimeFormatter}
+ * and do not allocate anything but the result.
+ */
+public final class DateUtil {
+
+    /**
+     * The date pattern that is used for conversion.
+     */
+    public static final String DATE_PATTERN = "dd.MM.yyyy";
+
+    /**
+     * The date formatter, for places that need a {@link DateTimeFormatter}.
+     */
+    public static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern(DATE_PATTERN);
+
+    /**
+     * Length of a formatted date.
+     */
+    public static final int DATE_LENGTH = DATE_PATTERN.length();
+
+    private static final char DELIMITER = '.';
+
+    private DateUtil() {
+    }
+
+    /**
+     * Returns the given date as a well formatted String.
+     *
+     * @param date the date to be returned as a string
+     * @return formatted string, or null if the date is null
+     */
+    public static String format(LocalDate date) {
+        if (date == null) {
+            return null;
+        }
+        char[] chars = new char[DATE_LENGTH];
+        formatTo(date, chars, 0);
+        return new String(chars);
+    }
+
+    /**
+     * Writes the formatted date into the buffer, which must have room for {@link #DATE_LENGTH} chars.
+     * Years outside 0..9999 are not supported.
+     */
+    public static void formatTo(LocalDate date, char[] buffer, int offset) {
+        int day = date.getDayOfMonth();
+        int month = date.getMonthValue();
+        int year = date.getYear();
+        if (year < 0 || year > 9999) {
+            throw new DateTimeException("Year out of range: " + year);
+        }
+        buffer[offset] = (char) ('0' + day / 10);
+        buffer[offset + 1] = (char) ('0' + day % 10);
+        buffer[offset + 2] = DELIMITER;
+        buffer[offset + 3] = (char) ('0' + month / 10);
+        buffer[offset + 4] = (char) ('0' + month % 10);
+        buffer[offset + 5] = DELIMITER;
+        buffer[offset + 6] = (char) ('0' + year / 1000);
+        buffer[offset + 7] = (char) ('0' + year / 100 % 10);
+        buffer[offset + 8] = (char) ('0' + year / 10 % 10);
+        buffer[offset + 9] = (char) ('0' + year % 10);
+    }
+
+    /**
+     * Converts a String in the format of {@link #DATE_PATTERN} to a {@link LocalDate}.
+     * Surrounding whitespace is ignored, dates that do not exist (like 31.02.2000) are rejected.
+     *
+     * @param dateString the date as String
+     * @return the date object or null if it could not be converted
+     */
+    public static LocalDate parse(CharSequence dateString) {
+        if (dateString == null) {
+            return null;
+        }
+        int start = 0;
+        int end = dateString.length();
+        while (start < end && Character.isWhitespace(dateString.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(dateString.charAt(end - 1))) {
+            end--;
+        }
+        if (end - start != DATE_LENGTH
+                || dateString.charAt(start + 2) != DELIMITER || dateString.charAt(start + 5) != DELIMITER) {
+            return null;
+        }
+        int day = digits(dateString, start, 2);
+        int month = digits(dateString, start + 3, 2);
+        int year = digits(dateString, start + 6, 4);
+        if (day < 1 || month < 1 || month > 12 || year < 0) {
+            return null;
+        }
+        if (day > 28 && day > java.time.Month.of(month).length(java.time.Year.isLeap(year))) {
+            return null;
+        }
+        return LocalDate.of(year, month, day);
+    }
+
+    /**
+     * Checks the String whether it is a valid date.
+     *
+     * @return true if the String is a valid date
+     */
+    public static boolean validDate(String dateString) {
+        return parse(dateString) != null;
+    }
+
+    /**
+     * Returns the decimal number of the given length at the offset, or -1 if there is a non-digit.
+     */
+    private static int digits(CharSequence chars, int offset, int length) {
+        int value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int digit = chars.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+}
@@ -1,23 +1,25 @@
 package util;
 
-import fx.model.Person;
-
 import javax.xml.bind.annotation.adapters.XmlAdapter;
-import java.util.Date;
+import java.time.LocalDate;
 
 /**
- * Adapter (for JAXB) to convert between the Date and the ISO 8601
- * String representation of the date such as '2012-12-03'.
+ * Adapter (for JAXB) to convert between the LocalDate and the dd.MM.yyyy
+ * String representation of the date such as '03.12.2012'.
  */
-public class XmlDateAdapter extends XmlAdapter<String, Date> {
+public class XmlDateAdapter extends XmlAdapter<String, LocalDate> {
 
     @Override
-    public Date unmarshal(String v) throws Exception {
-        return Person.DATE_FORMATTER.parse(v);
+    public LocalDate unmarshal(String v) throws Exception {
+        LocalDate date = DateUtil.parse(v);
+        if (date == null && v != null) {
+            throw new IllegalArgumentException("Not a date: " + v);
+        }
+        return date;
     }
 
     @Override
-    public String marshal(Date v) {
-        return v.toString();
+    public String marshal(LocalDate v) {
+        return DateUtil.format(v);
     }
 }
@@ -0,0 +1,135 @@
+package fx.batch;
+
+import fx.model.Person;
+import fx.persistence.PersonFileFormat;
+import fx.persistence.PersonJournal;
+import fx.persistence.PersonWriter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PersonBatchTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private final PersonBatch batch = new PersonBatch(new PrintStream(output, true));
+
+    @Test
+    public void rejectsUnknownCommandsAndWrongArguments() {
+        assertEquals(2, batch.run(new String[0]));
+        assertEquals(2, batch.run(new String[]{"unknown"}));
+        assertEquals(2, batch.run(new String[]{"stats"}));
+        assertEquals(2, batch.run(new String[]{"generate", "many", file("out.csv")}));
+    }
+
+    @Test
+    public void convertsBetweenFormats() throws IOException {
+        assertEquals(0, batch.run(new String[]{"generate", "500", file("persons.pbin"), "42"}));
+        assertEquals(0, batch.run(new String[]{"convert", file("persons.pbin"), file("persons.csv")}));
+        assertEquals(0, batch.run(new String[]{"convert", file("persons.csv"), file("persons.xml")}));
+
+        List<Person> binary = read("persons.pbin");
+        List<Person> xml = read("persons.xml");
+        assertEquals(500, binary.size());
+        assertEquals(binary.size(), xml.size());
+        for (int i = 0; i < binary.size(); i++) {
+            assertEquals(binary.get(i).getId(), xml.get(i).getId());
+            assertEquals(binary.get(i).getLastName(), xml.get(i).getLastName());
+            assertEquals(binary.get(i).getBirthday(), xml.get(i).getBirthday());
+        }
+    }
+
+    @Test
+    public void removesDuplicates() throws IOException {
+        Person duplicate = person(3, "Anna");
+        duplicate.setBirthday(LocalDate.of(1990, 5, 17));
+        write("persons.csv", person(1, "Anna"), person(2, "Hans"), duplicate);
+
+        assertEquals(0, batch.run(new String[]{"dedupe", file("persons.csv"), file("unique.csv")}));
+
+        List<Person> unique = read("unique.csv");
+        assertEquals(2, unique.size());
+        assertEquals(Arrays.asList(1, 2), Arrays.asList(unique.get(0).getId(), unique.get(1).getId()));
+        assertTrue(text(), text().contains("Removed 1 duplicates in 1 groups"));
+    }
+
+    @Test
+    public void statsLeaveADamagedJournalAlone() throws IOException {
+        write("persons.csv", person(1, "Anna"), person(2, "Hans"));
+        File journal = PersonJournal.fileFor(new File(file("persons.csv")));
+        byte[] damaged = {0x50, 0x4A, 0x4E, 0x4C, 0, 0, 0, 1, 0, 0, 0, 99, 1};
+        Files.write(journal.toPath(), damaged);
+
+        assertEquals(0, batch.run(new String[]{"stats", file("persons.csv")}));
+
+        assertTrue(text(), text().contains("2 persons, 1 without birthday"));
+        assertTrue(text(), text().contains("May        1"));
+        assertArrayEquals(damaged, Files.readAllBytes(journal.toPath()));
+    }
+
+    @Test
+    public void compactFoldsTheJournalIntoTheFile() throws IOException {
+        write("persons.csv", person(1, "Anna"), person(2, "Hans"));
+        assertEquals(0, batch.run(new String[]{"convert", file("persons.csv"), file("persons.pbin")}));
+        File journal = PersonJournal.fileFor(new File(file("persons.pbin")));
+        // A version 1 journal with one record cut off by a crash, which is ignored.
+        try (RandomAccessFile out = new RandomAccessFile(journal, "rw")) {
+            out.writeInt(0x504A4E4C);
+            out.writeInt(1);
+            out.writeInt(100);
+        }
+
+        assertEquals(0, batch.run(new String[]{"compact", file("persons.pbin")}));
+
+        assertFalse(journal.exists());
+        assertEquals(2, read("persons.pbin").size());
+    }
+
+    private String file(String name) {
+        return new File(folder.getRoot(), name).getPath();
+    }
+
+    private String text() {
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private void write(String name, Person... persons) throws IOException {
+        File file = new File(file(name));
+        try (PersonWriter writer = PersonFileFormat.forFile(file).createWriter(file)) {
+            for (Person person : persons) {
+                writer.write(person);
+            }
+            writer.commit();
+        }
+    }
+
+    private List<Person> read(String name) throws IOException {
+        List<Person> persons = new ArrayList<>();
+        PersonJournal.readWithChanges(new File(file(name)), persons::addAll);
+        return persons;
+    }
+
+    private static Person person(int id, String firstName) {
+        return new Person(id, firstName, "Muster", "Hauptstraße 1", 8001, "Zürich",
+                id == 1 ? LocalDate.of(1990, 5, 17) : null);
+    }
+}
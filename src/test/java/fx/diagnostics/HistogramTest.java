@@ -0,0 +1,86 @@
+package fx.diagnostics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HistogramTest {
+
+    @Test
+    public void smallValuesHaveABucketEach() {
+        for (int value = 0; value < Histogram.SUB_BUCKETS; value++) {
+            assertEquals(value, Histogram.bucketOf(value));
+            assertEquals(value, Histogram.bucketStart(value));
+        }
+    }
+
+    @Test
+    public void everyValueLiesInItsBucket() {
+        long[] values = {8, 9, 15, 16, 17, 100, 1000, 1023, 1024, 1025, 123_456_789, 1L << 40, (1L << 40) - 1,
+                Long.MAX_VALUE / 3, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = Histogram.bucketOf(value);
+            assertTrue(value + " at or after its bucket start", Histogram.bucketStart(bucket) <= value);
+            if (value < Long.MAX_VALUE / 2) {
+                assertTrue(value + " before the next bucket", value < Histogram.bucketStart(bucket + 1));
+            }
+        }
+    }
+
+    @Test
+    public void bucketsGrowWithTheValues() {
+        int previous = 0;
+        for (long value = 1; value > 0 && value < Long.MAX_VALUE / 2; value += Math.max(1, value / 7)) {
+            int bucket = Histogram.bucketOf(value);
+            assertTrue("bucket of " + value, bucket >= previous);
+            // Eight buckets per power of two: the bucket is at most an eighth of its start wide.
+            assertTrue(value - Histogram.bucketStart(bucket) <= Math.max(1, value / Histogram.SUB_BUCKETS));
+            previous = bucket;
+        }
+    }
+
+    @Test
+    public void percentilesAreWithinTheBucketResolution() {
+        Histogram histogram = new Histogram("test", Histogram.Unit.NONE);
+        for (int value = 1; value <= 10_000; value++) {
+            histogram.record(value);
+        }
+        MetricSnapshot snapshot = histogram.snapshot();
+
+        assertEquals(10_000, snapshot.getCount());
+        assertEquals(1, snapshot.getMin());
+        assertEquals(10_000, snapshot.getMax());
+        assertClose(5_000, snapshot.getP50());
+        assertClose(9_500, snapshot.getP95());
+        assertClose(9_900, snapshot.getP99());
+    }
+
+    @Test
+    public void percentilesOfOneValueAreTheValue() {
+        Histogram histogram = new Histogram("test", Histogram.Unit.NANOSECONDS);
+        for (int i = 0; i < 100; i++) {
+            histogram.record(1_234_567);
+        }
+        MetricSnapshot snapshot = histogram.snapshot();
+
+        assertEquals(1_234_567, snapshot.getP50());
+        assertEquals(1_234_567, snapshot.getP99());
+    }
+
+    @Test
+    public void negativeValuesCountAsZeroAndResetEmpties() {
+        Histogram histogram = new Histogram("test", Histogram.Unit.NONE);
+        histogram.record(-5);
+        assertEquals(0, histogram.snapshot().getMax());
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.snapshot().getCount());
+    }
+
+    private static void assertClose(long expected, long actual) {
+        assertTrue("expected about " + expected + " but was " + actual,
+                Math.abs(actual - expected) <= expected / Histogram.SUB_BUCKETS);
+    }
+}
@@ -0,0 +1,72 @@
+package fx.model;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+
+public class BirthdayHistogramTest {
+
+    private final BirthdayHistogram histogram = new BirthdayHistogram();
+
+    @Test
+    public void countsADateOnTheSameDayInEveryYear() {
+        histogram.add(LocalDate.of(1999, 3, 1));
+        histogram.add(LocalDate.of(2000, 3, 1));
+        histogram.add(LocalDate.of(2000, 2, 29));
+        histogram.add(LocalDate.of(2001, 12, 31));
+        histogram.add(LocalDate.of(2004, 12, 31));
+
+        assertEquals(0, BirthdayHistogram.dayOfYear(LocalDate.of(2001, 1, 1)));
+        assertEquals(2, histogram.getDayOfYearCount(60));
+        assertEquals(1, histogram.getDayOfYearCount(59));
+        assertEquals(2, histogram.getDayOfYearCount(BirthdayHistogram.DAYS_OF_YEAR - 1));
+        assertEquals(2, histogram.getMonthCount(2));
+    }
+
+    @Test
+    public void followsAddedRemovedAndChangedPersons() {
+        Person anna = person(LocalDate.of(1990, 5, 17));
+        Person hans = person(LocalDate.of(1985, 5, 2));
+        Person ruth = person(null);
+        histogram.personsAdded(Arrays.asList(anna, hans, ruth));
+        assertEquals(2, histogram.getMonthCount(4));
+
+        histogram.personChanged(hans, Person.BIRTHDAY_PROPERTY, hans.getBirthday(), LocalDate.of(1985, 1, 2));
+        histogram.personsRemoved(Collections.singletonList(anna));
+
+        assertEquals(0, histogram.getMonthCount(4));
+        assertEquals(1, histogram.getMonthCount(0));
+        assertEquals(1, histogram.getDayOfYearCount(1));
+    }
+
+    @Test
+    public void setsEveryMonthCountOncePerBatch() {
+        int[] sets = new int[1];
+        for (int month = 0; month < BirthdayHistogram.MONTHS; month++) {
+            histogram.monthCountProperty(month).addListener((observable, oldCount, newCount) -> sets[0]++);
+        }
+        List<Person> persons = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            persons.add(person(LocalDate.ofEpochDay(i * 7)));
+        }
+
+        histogram.personsAdded(persons);
+        assertEquals(BirthdayHistogram.MONTHS, sets[0]);
+        assertEquals(persons.size(), IntStream.range(0, BirthdayHistogram.MONTHS).map(histogram::getMonthCount).sum());
+
+        histogram.personsRemoved(persons);
+        assertEquals(2 * BirthdayHistogram.MONTHS, sets[0]);
+        assertEquals(0, histogram.getMonthCount(6));
+    }
+
+    private static Person person(LocalDate birthday) {
+        return new Person(1, "First", "Last", null, 0, null, birthday);
+    }
+}
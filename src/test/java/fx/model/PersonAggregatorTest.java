@@ -0,0 +1,57 @@
+package fx.model;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class PersonAggregatorTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2020, 6, 15);
+
+    @Test
+    public void groupsPostalCodesByTheirFirstTwoOfFiveDigits() {
+        List<Person> persons = new ArrayList<>();
+        for (int postalCode : new int[]{1067, 1099, 10115, 10999, 99999, 501, 0, -1, 123456}) {
+            persons.add(person(postalCode, null));
+        }
+
+        PersonStatistics statistics = PersonAggregator.aggregate(persons, TODAY);
+
+        assertEquals("01067 and 01099", 2, statistics.getPostalPrefixCount(1));
+        assertEquals(2, statistics.getPostalPrefixCount(10));
+        assertEquals(1, statistics.getPostalPrefixCount(99));
+        assertEquals("00501", 1, statistics.getPostalPrefixCount(0));
+        assertEquals(1, statistics.getLongPostalCodeCount());
+        assertEquals("01", PersonStatistics.getPostalPrefixName(1));
+        assertEquals("99", PersonStatistics.getPostalPrefixName(99));
+    }
+
+    @Test
+    public void mergesTheCountsOfAllParts() {
+        List<Person> persons = new ArrayList<>();
+        int count = PersonAggregator.CHUNK_SIZE * 5 + 3;
+        for (int i = 0; i < count; i++) {
+            persons.add(person(i % 3 == 0 ? 200_000 : 10_000 + i % 90_000, i % 2 == 0 ? null : TODAY.minusYears(25)));
+        }
+
+        PersonStatistics statistics = PersonAggregator.aggregate(persons, TODAY);
+
+        assertEquals(count, statistics.getPersonCount());
+        assertEquals((count + 2) / 3, statistics.getLongPostalCodeCount());
+        int prefixed = 0;
+        for (int prefix = 0; prefix < PersonStatistics.POSTAL_PREFIXES; prefix++) {
+            prefixed += statistics.getPostalPrefixCount(prefix);
+        }
+        assertEquals(count - statistics.getLongPostalCodeCount(), prefixed);
+        assertEquals((count + 1) / 2, statistics.getNoBirthdayCount());
+        assertEquals(count / 2, statistics.getAgeBandCount(2));
+    }
+
+    private static Person person(int postalCode, LocalDate birthday) {
+        return new Person(1, "First", "Last", null, postalCode, "City", birthday);
+    }
+}
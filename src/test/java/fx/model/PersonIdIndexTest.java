@@ -0,0 +1,114 @@
+package fx.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class PersonIdIndexTest {
+
+    private final PersonIdIndex index = new PersonIdIndex();
+
+    @Test
+    public void findsPersonsById() {
+        Person first = person(1);
+        Person second = person(-7);
+        index.personsAdded(Arrays.asList(first, second));
+
+        assertSame(first, index.get(1));
+        assertSame(second, index.get(-7));
+        assertNull(index.get(2));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void removingAnotherPersonWithTheSameIdKeepsTheIndexedOne() {
+        Person indexed = person(5);
+        index.personsAdded(Collections.singletonList(indexed));
+
+        index.personsRemoved(Collections.singletonList(person(5)));
+
+        assertSame(indexed, index.get(5));
+    }
+
+    @Test
+    public void followsChangedIds() {
+        Person person = person(3);
+        index.personsAdded(Collections.singletonList(person));
+
+        person.setId(30);
+        index.personChanged(person, Person.ID_PROPERTY, 3, 30);
+
+        assertNull(index.get(3));
+        assertSame(person, index.get(30));
+    }
+
+    /**
+     * Keeps the table close to its maximum load, so probe sequences are long and wrap around the end of the
+     * table, and removes persons in between: every lookup must still find what a map finds.
+     */
+    @Test
+    public void backwardShiftDeleteKeepsProbeSequencesIntact() {
+        Random random = new Random(11);
+        Map<Integer, Person> expected = new HashMap<>();
+        for (int step = 0; step < 200_000; step++) {
+            int id = random.nextInt(1000);
+            if (random.nextInt(3) > 0 && expected.size() < 700) {
+                if (!expected.containsKey(id)) {
+                    Person person = person(id);
+                    expected.put(id, person);
+                    index.personsAdded(Collections.singletonList(person));
+                }
+            } else {
+                Person person = expected.remove(id);
+                if (person != null) {
+                    index.personsRemoved(Collections.singletonList(person));
+                }
+            }
+            if (step % 1000 == 0) {
+                assertSameContent(expected);
+            }
+        }
+        assertSameContent(expected);
+    }
+
+    @Test
+    public void growsAndEmpties() {
+        List<Person> persons = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            persons.add(person(i * 31));
+        }
+        index.personsAdded(persons);
+        assertEquals(persons.size(), index.size());
+        assertSame(persons.get(4321), index.get(4321 * 31));
+
+        index.personsRemoved(persons.subList(0, 50_000));
+        assertNull(index.get(0));
+        assertSame(persons.get(50_000), index.get(50_000 * 31));
+        assertEquals(50_000, index.size());
+
+        index.clear();
+        assertNull(index.get(50_000 * 31));
+        assertEquals(0, index.size());
+    }
+
+    private void assertSameContent(Map<Integer, Person> expected) {
+        assertEquals(expected.size(), index.size());
+        for (int id = 0; id < 1000; id++) {
+            assertSame("id " + id, expected.get(id), index.get(id));
+        }
+    }
+
+    private static Person person(int id) {
+        return new Person(id, "First", "Last", null, 0, null, null);
+    }
+}
@@ -0,0 +1,167 @@
+package fx.model;
+
+import javafx.collections.ListChangeListener;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks that the bulk operations of {@link PersonList} fire one change whose sub-changes, applied in order
+ * to a copy of the list, give the list as it is afterwards.
+ */
+public class PersonListTest {
+
+    private final PersonList list = new PersonList();
+    /* Копия списка, которая изменяется только по событиям */
+    private final List<Person> replayed = new ArrayList<>();
+    private int changeCount;
+
+    @Before
+    public void listen() {
+        list.addListener((ListChangeListener<Person>) change -> {
+            changeCount++;
+            while (change.next()) {
+                assertFalse("permutation", change.wasPermutated());
+                int from = change.getFrom();
+                if (change.wasRemoved()) {
+                    List<Person> removed = replayed.subList(from, from + change.getRemovedSize());
+                    assertEquals("removed persons at " + from, change.getRemoved(), removed);
+                    removed.clear();
+                }
+                if (change.wasAdded()) {
+                    replayed.addAll(from, change.getAddedSubList());
+                }
+            }
+        });
+    }
+
+    @Test
+    public void removeIfReportsOneSubChangePerRemovedRange() {
+        List<Person> persons = persons(10);
+        list.setAll(persons);
+        List<int[]> ranges = new ArrayList<>();
+        list.addListener((ListChangeListener<Person>) change -> {
+            while (change.next()) {
+                ranges.add(new int[]{change.getFrom(), change.getRemovedSize()});
+            }
+        });
+
+        list.removeIf(person -> Arrays.asList(1, 2, 3, 6, 9).contains(person.getId()));
+
+        assertEquals(Arrays.asList(persons.get(0), persons.get(4), persons.get(5), persons.get(7), persons.get(8)), list);
+        // Indexes as if the ranges were removed front to back: [1, 4), then [6, 7) at 3, then [9] at 5.
+        assertEquals(3, ranges.size());
+        assertEquals(Arrays.asList(1, 3), Arrays.asList(ranges.get(0)[0], ranges.get(0)[1]));
+        assertEquals(Arrays.asList(3, 1), Arrays.asList(ranges.get(1)[0], ranges.get(1)[1]));
+        assertEquals(Arrays.asList(5, 1), Arrays.asList(ranges.get(2)[0], ranges.get(2)[1]));
+        assertEquals(list, replayed);
+    }
+
+    @Test
+    public void replaceAllReportsOnlyReplacedPersons() {
+        List<Person> persons = persons(5);
+        list.setAll(persons);
+        Person replacement = new Person(99, "New", "Person", null, 0, null, null);
+        changeCount = 0;
+
+        list.replaceAll(person -> person.getId() == 2 ? replacement : person);
+
+        assertEquals(1, changeCount);
+        assertSame(replacement, list.get(2));
+        assertEquals(list, replayed);
+
+        list.replaceAll(person -> person);
+        assertEquals("nothing replaced, no change", 1, changeCount);
+    }
+
+    @Test
+    public void randomOperationsFireOneConsistentChangeEach() {
+        Random random = new Random(3);
+        List<Person> pool = persons(3000);
+        for (int step = 0; step < 3000; step++) {
+            int countBefore = changeCount;
+            boolean changes;
+            switch (random.nextInt(7)) {
+                case 0: {
+                    List<Person> added = new ArrayList<>();
+                    for (int i = random.nextInt(50); i > 0; i--) {
+                        added.add(pool.get(random.nextInt(pool.size())));
+                    }
+                    list.addAll(random.nextInt(list.size() + 1), added);
+                    changes = !added.isEmpty();
+                    break;
+                }
+                case 1: {
+                    Set<Person> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+                    for (Person person : list) {
+                        if (random.nextInt(4) == 0) {
+                            removed.add(person);
+                        }
+                    }
+                    list.removeAll(removed);
+                    changes = !removed.isEmpty();
+                    break;
+                }
+                case 2: {
+                    int from = random.nextInt(list.size() + 1);
+                    int to = from + random.nextInt(list.size() - from + 1);
+                    list.remove(from, to);
+                    changes = to > from;
+                    break;
+                }
+                case 3: {
+                    double fraction = random.nextDouble() * 0.2;
+                    Map<Person, Person> replacements = new IdentityHashMap<>();
+                    for (Person person : list) {
+                        if (random.nextDouble() < fraction) {
+                            replacements.put(person, pool.get(random.nextInt(pool.size())));
+                        }
+                    }
+                    list.replaceAll(person -> replacements.getOrDefault(person, person));
+                    changes = replacements.entrySet().stream().anyMatch(entry -> entry.getKey() != entry.getValue());
+                    break;
+                }
+                case 4: {
+                    List<Person> content = new ArrayList<>();
+                    for (int i = random.nextInt(200); i > 0; i--) {
+                        content.add(pool.get(random.nextInt(pool.size())));
+                    }
+                    changes = !(list.isEmpty() && content.isEmpty());
+                    list.setAll(content);
+                    break;
+                }
+                case 5:
+                    changes = !list.isEmpty();
+                    if (changes) {
+                        list.remove(random.nextInt(list.size()));
+                    }
+                    break;
+                default:
+                    list.add(pool.get(random.nextInt(pool.size())));
+                    changes = true;
+            }
+            assertEquals("step " + step, list, replayed);
+            assertEquals("changes of step " + step, changes ? 1 : 0, changeCount - countBefore);
+        }
+    }
+
+    private static List<Person> persons(int count) {
+        List<Person> persons = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            persons.add(new Person(i, "First" + i, "Last" + i, null, 0, null, null));
+        }
+        return persons;
+    }
+}
@@ -0,0 +1,185 @@
+package fx.persistence;
+
+import fx.model.Person;
+import org.junit.AfterClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PersonCsvReaderTest {
+
+    /* Несколько потоков, чтобы куски разбирались параллельно и на машине с одним ядром */
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final PersonCsvReader reader = new PersonCsvReader(POOL);
+    private final List<List<Person>> batches = new ArrayList<>();
+
+    @AfterClass
+    public static void shutDownPool() {
+        POOL.shutdown();
+    }
+
+    @Test
+    public void readsWhatTheWriterWroteAcrossManyChunks() throws IOException {
+        List<Person> written = new ArrayList<>();
+        for (int i = 0; i < 60_000; i++) {
+            written.add(new Person(i, "First \"" + i + "\"", i % 3 == 0 ? null : "Last, " + i, "Street " + i,
+                    i % 90_000, i % 5 == 0 ? "" : "City", i % 7 == 0 ? null : LocalDate.ofEpochDay(i)));
+        }
+        File file = folder.newFile("persons.csv");
+        try (PersonCsvWriter writer = new PersonCsvWriter(file)) {
+            for (Person person : written) {
+                writer.write(person);
+            }
+            writer.commit();
+        }
+        assertTrue("several chunks", file.length() > 3L * PersonCsvReader.CHUNK_SIZE);
+
+        int count = reader.read(file, batches::add);
+
+        assertEquals(written.size(), count);
+        assertTrue("one batch per chunk", batches.size() > 3);
+        List<Person> read = all();
+        for (int i = 0; i < written.size(); i++) {
+            assertSameValues(written.get(i), read.get(i));
+        }
+        assertEquals(0, reader.getMalformedCount());
+        assertEquals(file.length(), reader.getBytesRead());
+        assertTrue(reader.hasIdColumn());
+    }
+
+    @Test
+    public void splitsQuotedValues() throws IOException {
+        File file = write("firstName,lastName,street,city\n"
+                + "\"Anna, Maria\",\"O\"\"Brien\",\"\",\"Zürich\"\n"
+                + "Hans,Muster,,\n");
+
+        reader.read(file, batches::add);
+
+        List<Person> read = all();
+        assertEquals("Anna, Maria", read.get(0).getFirstName());
+        assertEquals("O\"Brien", read.get(0).getLastName());
+        assertNull("empty values are null", read.get(0).getStreet());
+        assertEquals("Zürich", read.get(0).getCity());
+        assertEquals("Hans", read.get(1).getFirstName());
+        assertNull(read.get(1).getCity());
+    }
+
+    @Test
+    public void reportsMalformedRowsWithTheirLineNumbersInAllChunks() throws IOException {
+        StringBuilder csv = new StringBuilder("id,firstName,lastName,birthday\n");
+        List<Integer> badLines = Arrays.asList(3, 40_000, 79_999);
+        int line = 2;
+        for (int i = 0; i < 80_000; i++, line++) {
+            if (badLines.contains(line)) {
+                csv.append(line == 40_000 ? "x," : "1,").append(line == 3 ? "\"open,Last,\n" : "First,Last,never\n");
+            } else {
+                csv.append(i).append(",First ").append(i).append(",Last,2000-01-31\n");
+            }
+        }
+        File file = write(csv.toString());
+        assertTrue("several chunks", file.length() > 2L * PersonCsvReader.CHUNK_SIZE);
+
+        int count = reader.read(file, batches::add);
+
+        assertEquals(80_000 - badLines.size(), count);
+        assertEquals(badLines.size(), reader.getMalformedCount());
+        assertEquals(Arrays.asList(
+                "line 3: unterminated quote",
+                "line 40000: invalid id 'x'",
+                "line 79999: invalid birthday 'never'"), reader.getMalformedRows());
+    }
+
+    @Test
+    public void readsALineLongerThanAChunk() throws IOException {
+        char[] longStreet = new char[PersonCsvReader.CHUNK_SIZE + PersonCsvReader.CHUNK_SIZE / 2];
+        Arrays.fill(longStreet, 's');
+        File file = write("firstName,lastName,street\nA,B,short\nC,D," + new String(longStreet) + "\nE,F,short\n");
+
+        reader.read(file, batches::add);
+
+        List<Person> read = all();
+        assertEquals(3, read.size());
+        assertEquals(longStreet.length, read.get(1).getStreet().length());
+        assertEquals("E", read.get(2).getFirstName());
+    }
+
+    @Test
+    public void acceptsByteOrderMarkLineBreaksAndColumnsInAnyOrder() throws IOException {
+        byte[] text = ("BIRTHDAY,lastName, firstName ,unknown\r\n"
+                + "31.01.2000,Muster,Hans,x\r\n"
+                + ",Best,Anna,y\r\n").getBytes(StandardCharsets.UTF_8);
+        byte[] bytes = new byte[text.length + 3];
+        bytes[0] = (byte) 0xEF;
+        bytes[1] = (byte) 0xBB;
+        bytes[2] = (byte) 0xBF;
+        System.arraycopy(text, 0, bytes, 3, text.length);
+        File file = folder.newFile("bom.csv");
+        Files.write(file.toPath(), bytes);
+
+        reader.read(file, batches::add);
+
+        List<Person> read = all();
+        assertEquals("Hans", read.get(0).getFirstName());
+        assertEquals("Muster", read.get(0).getLastName());
+        assertEquals(LocalDate.of(2000, 1, 31), read.get(0).getBirthday());
+        assertNull(read.get(1).getBirthday());
+        assertFalse(reader.hasIdColumn());
+        assertEquals("new ids in file order", read.get(0).getId() + 1, read.get(1).getId());
+    }
+
+    @Test
+    public void rejectsAFileWithoutNameColumns() throws IOException {
+        File file = write("id,street\n1,Main Street\n");
+        try {
+            reader.read(file, batches::add);
+            fail("read a file without names");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("firstName"));
+        }
+        assertEquals(Collections.emptyList(), batches);
+    }
+
+    private File write(String csv) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), csv.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private List<Person> all() {
+        List<Person> persons = new ArrayList<>();
+        batches.forEach(persons::addAll);
+        return persons;
+    }
+
+    private static void assertSameValues(Person expected, Person actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getFirstName(), actual.getFirstName());
+        assertEquals(expected.getLastName(), actual.getLastName());
+        assertEquals(expected.getStreet(), actual.getStreet());
+        assertEquals(expected.getPostalCode(), actual.getPostalCode());
+        // The writer cannot tell an empty string from null, both are read back as null.
+        assertEquals(expected.getCity() == null || expected.getCity().isEmpty() ? null : expected.getCity(), actual.getCity());
+        assertEquals(expected.getBirthday(), actual.getBirthday());
+    }
+}
@@ -0,0 +1,172 @@
+package fx.persistence;
+
+import fx.model.Person;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PersonJournalTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void replaysUpsertsAndDeletesOverTheSnapshot() throws IOException {
+        File file = snapshot(person(1, "Anna"), person(2, "Hans"), person(3, "Ruth"));
+        Map<Integer, Person> changes = new LinkedHashMap<>();
+        changes.put(2, person(2, "Hannes"));
+        changes.put(3, null);
+        changes.put(7, person(7, "Neu"));
+        PersonJournal.append(file, PersonJournal.encode(changes));
+        // A later record of the same id wins.
+        PersonJournal.append(file, PersonJournal.encode(Collections.singletonMap(7, person(7, "Neuer"))));
+
+        List<Person> read = new ArrayList<>();
+        int count = PersonJournal.readWithChanges(file, read::addAll);
+
+        assertEquals(3, count);
+        assertEquals(Arrays.asList("Anna", "Hannes", "Neuer"), firstNames(read));
+        assertEquals(7, read.get(2).getId());
+        assertEquals(LocalDate.of(1990, 5, 17), read.get(1).getBirthday());
+    }
+
+    @Test
+    public void dropsARecordCutOffByACrash() throws IOException {
+        File file = snapshot(person(1, "Anna"));
+        PersonJournal.append(file, PersonJournal.encode(Collections.singletonMap(1, person(1, "Anne"))));
+        long intact = PersonJournal.append(file, PersonJournal.encode(Collections.singletonMap(2, person(2, "Otto"))));
+        try (RandomAccessFile journal = new RandomAccessFile(PersonJournal.fileFor(file), "rw")) {
+            journal.setLength(intact - 3);
+        }
+
+        Map<Integer, Person> changes = PersonJournal.read(file);
+
+        assertEquals(Collections.singleton(1), changes.keySet());
+        assertEquals("Anne", changes.get(1).getFirstName());
+        assertEquals("reading leaves the journal alone", intact - 3, PersonJournal.fileFor(file).length());
+    }
+
+    @Test
+    public void appendsAfterTheLastIntactRecord() throws IOException {
+        File file = snapshot(person(1, "Anna"));
+        long first = PersonJournal.append(file, PersonJournal.encode(Collections.singletonMap(1, person(1, "Anne"))));
+        long intact = PersonJournal.append(file, PersonJournal.encode(Collections.singletonMap(2, person(2, "Otto"))));
+        try (RandomAccessFile journal = new RandomAccessFile(PersonJournal.fileFor(file), "rw")) {
+            journal.setLength(intact - 3);
+        }
+
+        byte[] records = PersonJournal.encode(Collections.singletonMap(3, person(3, "Eva")));
+        long size = PersonJournal.append(file, records);
+
+        assertEquals(first + records.length, size);
+        assertEquals(size, PersonJournal.fileFor(file).length());
+        assertEquals(Arrays.asList(1, 3), new ArrayList<>(PersonJournal.read(file).keySet()));
+    }
+
+    @Test
+    public void dropsARecordWithAWrongChecksum() throws IOException {
+        File file = snapshot(person(1, "Anna"));
+        PersonJournal.append(file, PersonJournal.encode(Collections.singletonMap(1, person(1, "Anne"))));
+        long intact = PersonJournal.append(file, PersonJournal.encode(Collections.singletonMap(2, person(2, "Otto"))));
+        try (RandomAccessFile journal = new RandomAccessFile(PersonJournal.fileFor(file), "rw")) {
+            journal.seek(intact - 6);
+            journal.write('X');
+        }
+
+        assertEquals(Collections.singleton(1), PersonJournal.read(file).keySet());
+    }
+
+    @Test
+    public void ignoresTheJournalOfAnOlderSnapshot() throws IOException {
+        File file = snapshot(person(1, "Anna"));
+        PersonJournal.append(file, PersonJournal.encode(Collections.singletonMap(1, null)));
+
+        // A save that crashed before it could delete the journal.
+        write(file, person(1, "Anna"), person(2, "Hans"));
+
+        List<Person> read = new ArrayList<>();
+        PersonJournal.readWithChanges(file, read::addAll);
+        assertEquals(Arrays.asList("Anna", "Hans"), firstNames(read));
+    }
+
+    @Test
+    public void startsAStaleJournalOver() throws IOException {
+        File file = snapshot(person(1, "Anna"));
+        PersonJournal.append(file, PersonJournal.encode(Collections.singletonMap(1, null)));
+        write(file, person(1, "Anna"), person(2, "Hans"));
+
+        long size = PersonJournal.append(file, PersonJournal.encode(Collections.singletonMap(2, person(2, "Hannes"))));
+
+        assertEquals(size, PersonJournal.fileFor(file).length());
+        Map<Integer, Person> changes = PersonJournal.read(file);
+        assertEquals(Collections.singleton(2), changes.keySet());
+        assertEquals("Hannes", changes.get(2).getFirstName());
+    }
+
+    @Test
+    public void readsNothingWithoutAJournal() throws IOException {
+        File file = snapshot(person(1, "Anna"));
+
+        assertTrue(PersonJournal.read(file).isEmpty());
+        PersonJournal.deleteObsolete(file);
+        assertTrue(!PersonJournal.fileFor(file).exists());
+    }
+
+    @Test
+    public void replayDiscardsUnappliedChanges() {
+        Map<Integer, Person> changes = new LinkedHashMap<>();
+        changes.put(1, null);
+        changes.put(5, person(5, "Neu"));
+        PersonJournal.Replay replay = new PersonJournal.Replay(changes);
+
+        List<Person> batch = replay.apply(new ArrayList<>(Arrays.asList(person(1, "Anna"), person(2, "Hans"))));
+        assertEquals(Collections.singletonList("Hans"), firstNames(batch));
+
+        replay.discard();
+        assertTrue(replay.remaining().isEmpty());
+        assertNull("the map of the caller is left alone", changes.get(1));
+        assertEquals(2, changes.size());
+    }
+
+    private File snapshot(Person... persons) throws IOException {
+        File file = new File(folder.getRoot(), "persons.csv");
+        write(file, persons);
+        return file;
+    }
+
+    private static void write(File file, Person... persons) throws IOException {
+        try (PersonWriter writer = PersonFileFormat.forFile(file).createWriter(file)) {
+            for (Person person : persons) {
+                writer.write(person);
+            }
+            writer.commit();
+        }
+    }
+
+    private static List<String> firstNames(List<Person> persons) {
+        List<String> names = new ArrayList<>();
+        for (Person person : persons) {
+            names.add(person.getFirstName());
+        }
+        return names;
+    }
+
+    private static Person person(int id, String firstName) {
+        return new Person(id, firstName, "Muster", "Hauptstraße 1", 8001, "Zürich", LocalDate.of(1990, 5, 17));
+    }
+}